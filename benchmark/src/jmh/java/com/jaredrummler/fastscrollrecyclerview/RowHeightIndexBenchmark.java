@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the lookups of {@link RowHeightIndex} used for the thumb offset and the jump target when rows have
+ * variable heights.
+ */
+@State(Scope.Thread)
+public class RowHeightIndexBenchmark {
+
+  private static final int SAMPLES = 1024;
+
+  // 1e8 items need about 1.6 GB of heap, pass -p itemCount=100000000 to the benchmark jar to run them
+  @Param({"1000", "1000000"})
+  public int itemCount;
+
+  private final long[] offsets = new long[SAMPLES];
+  private final int[] rows = new int[SAMPLES];
+  private RowHeightIndex index;
+  private int sample;
+
+  @Setup
+  public void setup() {
+    index = new RowHeightIndex();
+    index.setRowCount(itemCount);
+    // Measure half of the rows, with heights between 48 and 600 pixels
+    for (int row = 0; row < itemCount; row += 2) {
+      index.setRowHeight(row, 48 + (row * 37) % 553);
+    }
+    long totalHeight = index.getTotalHeight();
+    for (int i = 0; i < SAMPLES; i++) {
+      offsets[i] = totalHeight * i / (SAMPLES - 1);
+      rows[i] = (int) ((long) (itemCount - 1) * i / (SAMPLES - 1));
+    }
+  }
+
+  private int nextSample() {
+    return sample = (sample + 1) & (SAMPLES - 1);
+  }
+
+  @Benchmark
+  public int rowAtOffset() {
+    return index.getRowAtOffset(offsets[nextSample()]);
+  }
+
+  @Benchmark
+  public long rowOffset() {
+    return index.getRowOffset(rows[nextSample()]);
+  }
+
+  @Benchmark
+  public long setRowHeight() {
+    int i = nextSample();
+    index.setRowHeight(rows[i], 48 + i);
+    return index.getTotalHeight();
+  }
+
+  @Benchmark
+  public long insertAndRemoveRow() {
+    int row = rows[nextSample()];
+    index.insertRows(row, 1);
+    index.removeRows(row, 1);
+    return index.getTotalHeight();
+  }
+
+}
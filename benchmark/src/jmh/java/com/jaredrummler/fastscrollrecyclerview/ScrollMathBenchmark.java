@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the thumb offset mapping, the touch fraction to position mapping and the row height estimation done by
+ * {@link FastScrollRecyclerView} while scrolling and dragging the thumb.
+ */
+@State(Scope.Thread)
+public class ScrollMathBenchmark {
+
+  private static final int ROW_HEIGHT = 120;
+  private static final int VISIBLE_HEIGHT = 1920;
+  private static final int SCROLL_BAR_HEIGHT = VISIBLE_HEIGHT - 216;
+  private static final int SAMPLES = 1024;
+
+  @Param({"1000", "1000000", "100000000"})
+  public int itemCount;
+
+  private final float[] fractions = new float[SAMPLES];
+  private final int[] rowIndexes = new int[SAMPLES];
+  private final int[] itemHeights = new int[SAMPLES];
+  private final RowHeightEstimator rowHeightEstimator = new RowHeightEstimator();
+  private long availableScrollHeight;
+  private int sample;
+
+  @Setup
+  public void setup() {
+    int rowCount = ScrollMath.getRowCount(itemCount, 1);
+    availableScrollHeight = (long) rowCount * ROW_HEIGHT - VISIBLE_HEIGHT;
+    for (int i = 0; i < SAMPLES; i++) {
+      fractions[i] = i / (float) (SAMPLES - 1);
+      rowIndexes[i] = (int) ((long) i * (rowCount - 1) / (SAMPLES - 1));
+      itemHeights[i] = ROW_HEIGHT + (i % 3) * 16;
+    }
+  }
+
+  private int nextSample() {
+    return sample = (sample + 1) & (SAMPLES - 1);
+  }
+
+  @Benchmark
+  public int thumbOffset() {
+    int i = nextSample();
+    long scrollY = ScrollMath.getScrollY(rowIndexes[i], -0.25f, ROW_HEIGHT);
+    return ScrollMath.getThumbOffset(scrollY, availableScrollHeight, SCROLL_BAR_HEIGHT);
+  }
+
+  @Benchmark
+  public long positionAtProgress() {
+    float touchFraction = fractions[nextSample()];
+    long exactItemPos = ScrollMath.getScrollOffsetAtProgress(availableScrollHeight, touchFraction);
+    int position = ScrollMath.getRowAtScrollOffset(exactItemPos, ROW_HEIGHT);
+    int offset = ScrollMath.getOffsetInRow(exactItemPos, ROW_HEIGHT);
+    int sectionPosition = ScrollMath.getPositionAtProgress(itemCount, touchFraction);
+    return ((long) position << 32) ^ offset ^ sectionPosition;
+  }
+
+  @Benchmark
+  public int estimateRowHeight() {
+    // An item is laid out, then the thumb offset reads the estimate
+    rowHeightEstimator.addSample(itemHeights[nextSample()]);
+    return rowHeightEstimator.getRowHeight(ROW_HEIGHT);
+  }
+
+}
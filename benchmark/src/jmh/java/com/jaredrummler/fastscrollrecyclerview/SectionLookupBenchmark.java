@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks mapping the touch fraction to a section name, as done for the popup on every move event while dragging
+ * the thumb, with the section names of all positions cached in an array or in {@link SectionRuns}.
+ */
+@State(Scope.Thread)
+public class SectionLookupBenchmark {
+
+  private static final int SAMPLES = 1024;
+
+  // The array of 1e8 section names needs about 400 MB, pass -p itemCount=100000000 to run it
+  @Param({"1000", "1000000"})
+  public int itemCount;
+
+  private final float[] fractions = new float[SAMPLES];
+  private String[] sections;
+  private SectionRuns runs;
+  private int sample;
+
+  @Setup
+  public void setup() {
+    String[] labels = new String[26];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = String.valueOf((char) ('A' + i));
+    }
+    sections = new String[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      sections[i] = labels[(int) ((long) i * labels.length / itemCount)];
+    }
+    runs = new SectionRuns();
+    runs.build(itemCount, new SectionRuns.NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return sections[position];
+      }
+    });
+    for (int i = 0; i < SAMPLES; i++) {
+      fractions[i] = i / (float) (SAMPLES - 1);
+    }
+  }
+
+  private int nextSample() {
+    return sample = (sample + 1) & (SAMPLES - 1);
+  }
+
+  @Benchmark
+  public String sectionAtProgress() {
+    return sections[ScrollMath.getPositionAtProgress(itemCount, fractions[nextSample()])];
+  }
+
+  @Benchmark
+  public String sectionAtProgressFromRuns() {
+    return runs.getSectionName(ScrollMath.getPositionAtProgress(itemCount, fractions[nextSample()]));
+  }
+
+}
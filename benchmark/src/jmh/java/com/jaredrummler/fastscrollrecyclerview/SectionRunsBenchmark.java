@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks keeping the derived sections in sync with a live list: applying a range event to the section runs,
+ * compared to deriving them again from the name of every item.
+ */
+@State(Scope.Thread)
+public class SectionRunsBenchmark {
+
+  private static final int SAMPLES = 1024;
+
+  @Param({"1000", "1000000"})
+  public int itemCount;
+
+  private final int[] positions = new int[SAMPLES];
+  private SectionRuns runs;
+  private SectionRuns.NameSource names;
+  private int sample;
+
+  @Setup
+  public void setup() {
+    final String[] labels = new String[26];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = String.valueOf((char) ('A' + i));
+    }
+    names = new SectionRuns.NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return labels[(int) ((long) position * labels.length / itemCount)];
+      }
+    };
+    runs = new SectionRuns();
+    runs.build(itemCount, names);
+    for (int i = 0; i < SAMPLES; i++) {
+      positions[i] = (int) ((long) i * (itemCount - 1) / (SAMPLES - 1));
+    }
+  }
+
+  private int nextSample() {
+    return sample = (sample + 1) & (SAMPLES - 1);
+  }
+
+  @Benchmark
+  public int insertAndRemoveItem() {
+    int position = positions[nextSample()];
+    runs.insert(position, 1, names);
+    runs.remove(position, 1);
+    return runs.getRunCount();
+  }
+
+  @Benchmark
+  public int rebuild() {
+    runs.build(itemCount, names);
+    return runs.getRunCount();
+  }
+
+}
@@ -23,7 +23,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -42,7 +41,6 @@ public class MainActivity extends AppCompatActivity {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.main);
     FastScrollRecyclerView recyclerView = (FastScrollRecyclerView) findViewById(R.id.recycler);
-    recyclerView.setLayoutManager(new LinearLayoutManager(this));
     recyclerView.setAdapter(new RecyclerAdapter(getResources().getStringArray(R.array.countries_array)));
   }
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.jaredrummler.fastscrollrecyclerview.FastScrollRecyclerView.AsyncSectionedAdapter;
+import com.jaredrummler.fastscrollrecyclerview.FastScrollRecyclerView.SectionNameCallback;
+
+/**
+ * <p>Requests section names from an {@link AsyncSectionedAdapter} while the thumb is dragged.</p>
+ *
+ * <p>At most one request is in flight. While it is, the position under the finger is only remembered, and it is
+ * requested when the answer arrives, so a fast drag never queues more lookups than the adapter can serve. Answers that
+ * arrive after the adapter changed or the drag ended are dropped.</p>
+ */
+/*package*/ class AsyncSectionLoader {
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final FastScrollRecyclerView recyclerView;
+  private final AsyncSectionedAdapter adapter;
+
+  private int generation;
+  private int requestedPosition = -1; // The position of the request in flight
+  private int wantedPosition = -1;    // The position currently under the finger
+  private int knownPosition = -1;     // The position of the last answer
+  private String knownName;           // The last answer
+
+  /*package*/ AsyncSectionLoader(FastScrollRecyclerView recyclerView, AsyncSectionedAdapter adapter) {
+    this.recyclerView = recyclerView;
+    this.adapter = adapter;
+  }
+
+  /*package*/ AsyncSectionedAdapter getAdapter() {
+    return adapter;
+  }
+
+  /**
+   * Returns the section name of the position if it is known, else requests it and returns the last known section
+   * name or the placeholder.
+   */
+  /*package*/ String getSectionName(int position, String placeholder) {
+    wantedPosition = position;
+    if (position == knownPosition) {
+      return knownName;
+    }
+    if (requestedPosition == -1) {
+      request(position);
+    }
+    return knownName != null ? knownName : placeholder;
+  }
+
+  /**
+   * Cancels the request in flight, e.g. when the drag ended.
+   */
+  /*package*/ void cancel() {
+    if (requestedPosition != -1) {
+      adapter.cancelSectionNameRequest(requestedPosition);
+      requestedPosition = -1;
+    }
+    wantedPosition = -1;
+    generation++;
+  }
+
+  /**
+   * Forgets the last answer, e.g. when the adapter's data changed.
+   */
+  /*package*/ void invalidate() {
+    cancel();
+    knownPosition = -1;
+  }
+
+  private void request(int position) {
+    requestedPosition = position;
+    adapter.requestSectionName(position, new Request(generation, position));
+  }
+
+  private void onSectionName(int requestGeneration, int position, String sectionName) {
+    if (requestGeneration != generation || position != requestedPosition) {
+      return; // The request was cancelled
+    }
+    requestedPosition = -1;
+    knownPosition = position;
+    knownName = sectionName;
+    if (wantedPosition != -1 && wantedPosition != position) {
+      request(wantedPosition);
+    }
+    recyclerView.fastScrollBar.onSectionNameLoaded(sectionName);
+  }
+
+  private class Request implements SectionNameCallback {
+
+    private final int requestGeneration;
+    private final int requestPosition;
+
+    Request(int requestGeneration, int requestPosition) {
+      this.requestGeneration = requestGeneration;
+      this.requestPosition = requestPosition;
+    }
+
+    @Override public void onSectionName(@NonNull final String sectionName) {
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        AsyncSectionLoader.this.onSectionName(requestGeneration, requestPosition, sectionName);
+      } else {
+        handler.post(new Runnable() {
+
+          @Override public void run() {
+            AsyncSectionLoader.this.onSectionName(requestGeneration, requestPosition, sectionName);
+          }
+        });
+      }
+    }
+  }
+
+}
@@ -18,12 +18,9 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
-import android.animation.AnimatorSet;
-import android.animation.ArgbEvaluator;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -33,23 +30,28 @@ import android.graphics.Rect;
 import android.support.annotation.ColorInt;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.ViewConfiguration;
 
 public class FastScrollBar {
 
   private final static int MAX_TRACK_ALPHA = 30;
-  private final static int SCROLL_BAR_VIS_DURATION = 150;
 
   private final Rect invalidateRect = new Rect();
   private final Rect tmpRect = new Rect();
 
   /*package*/ final Point thumbOffset = new Point(-1, -1);
-  private final Path thumbPath = new Path();
+  private final Path thumbPath = new Path(); // In local coordinates, drawn translated to the thumb offset
+  private int thumbPathWidth = -1; // The width the path was built for
+  private int thumbPathCurvature = -1; // The curvature the path was built for
 
   /*package*/ FastScrollRecyclerView recyclerView;
   private FastScrollPopup fastScrollPopup;
 
-  private AnimatorSet scrollbarAnimator;
+  private ScrollbarAnimator scrollbarAnimator;
+  private FastScrollJumpScheduler jumpScheduler;
+  private FastScrollIndexBar indexBar;
+  private boolean indexMode; // Shows the index bar instead of the thumb
 
   private int thumbInactiveColor;
   private int thumbActiveColor;
@@ -64,6 +66,9 @@ public class FastScrollBar {
   private Paint trackPaint;
   private int trackWidth;
   private float lastTouchY;
+  private float lastTouchFraction;
+  private VelocityTracker velocityTracker;
+  private int popupTouchY; // The touch position the popup is shown at
 
   // The inset is the buffer around which a point will still register as a click on the scrollbar
   private int touchInset;
@@ -73,6 +78,7 @@ public class FastScrollBar {
   private boolean canThumbDetach;
   private boolean ignoreDragGesture;
   private boolean showThumbCurvature;
+  private boolean reducedQuality; // Draws the thumb without anti-aliasing or curvature
 
   // This is the offset from the top of the scrollbar when the user first starts touching.
   // To prevent jumping, this offset is applied as the user scrolls.
@@ -89,7 +95,10 @@ public class FastScrollBar {
     int trackColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollTrackColor, Color.BLACK);
     ta.recycle();
     recyclerView = rv;
+    scrollbarAnimator = new ScrollbarAnimator(this);
+    jumpScheduler = new FastScrollJumpScheduler(rv);
     fastScrollPopup = new FastScrollPopup(rv, attrs);
+    fastScrollPopup.animator = scrollbarAnimator;
     trackPaint = new Paint();
     trackPaint.setColor(trackColor);
     trackPaint.setAlpha(MAX_TRACK_ALPHA);
@@ -100,8 +109,10 @@ public class FastScrollBar {
     thumbWidth = thumbMinWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_min_width);
     thumbMaxWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_max_width);
     thumbHeight = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_height);
-    thumbCurvature = showThumbCurvature ? thumbMaxWidth - thumbMinWidth : 0;
+    updateThumbPath();
     touchInset = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_touch_inset);
+    indexBar = new FastScrollIndexBar(rv, res.getDimensionPixelSize(R.dimen.fastscroll_index_bar_width),
+        res.getDimension(R.dimen.fastscroll_index_text_size), thumbActiveColor);
     if (rv.isFastScrollAlwaysEnabled()) {
       animateScrollbar(true);
     }
@@ -122,10 +133,9 @@ public class FastScrollBar {
     invalidateRect
         .set(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
     thumbOffset.set(x, y);
-    updateThumbPath();
     invalidateRect
         .union(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
-    recyclerView.invalidate(invalidateRect);
+    recyclerView.invalidateFastScroller(invalidateRect);
   }
 
   public Point getThumbOffset() {
@@ -140,7 +150,9 @@ public class FastScrollBar {
     updateThumbPath();
     invalidateRect
         .union(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
-    recyclerView.invalidate(invalidateRect);
+    recyclerView.invalidateFastScroller(invalidateRect);
+    // The thumb is aligned to the end of the list, so its offset depends on its width
+    recyclerView.scrollbarDirty = true;
   }
 
   public int getThumbWidth() {
@@ -151,9 +163,8 @@ public class FastScrollBar {
   public void setTrackWidth(int width) {
     invalidateRect.set(thumbOffset.x - thumbCurvature, 0, thumbOffset.x + thumbWidth, recyclerView.getHeight());
     trackWidth = width;
-    updateThumbPath();
     invalidateRect.union(thumbOffset.x - thumbCurvature, 0, thumbOffset.x + thumbWidth, recyclerView.getHeight());
-    recyclerView.invalidate(invalidateRect);
+    recyclerView.invalidateFastScroller(invalidateRect);
   }
 
   public int getTrackWidth() {
@@ -183,18 +194,26 @@ public class FastScrollBar {
   public void setThumbActiveColor(@ColorInt int color) {
     thumbActiveColor = color;
     thumbPaint.setColor(color);
-    recyclerView.invalidate(invalidateRect);
+    indexBar.textPaint.setColor(color);
+    recyclerView.invalidateFastScroller(invalidateRect);
   }
 
   public void setThumbInactiveColor(@ColorInt int color) {
     thumbInactiveColor = color;
     thumbPaint.setColor(color);
-    recyclerView.invalidate(invalidateRect);
+    recyclerView.invalidateFastScroller(invalidateRect);
+  }
+
+  /*package*/ void setThumbColor(@ColorInt int color) {
+    thumbPaint.setColor(color);
+    tmpRect.set(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth,
+        thumbOffset.y + thumbHeight);
+    recyclerView.invalidateFastScroller(tmpRect);
   }
 
   public void setTrackColor(@ColorInt int color) {
     trackPaint.setColor(color);
-    recyclerView.invalidate(invalidateRect);
+    recyclerView.invalidateFastScroller(invalidateRect);
   }
 
   public void setPopupBackgroundColor(@ColorInt int color) {
@@ -205,10 +224,43 @@ public class FastScrollBar {
     fastScrollPopup.setTextColor(color);
   }
 
+  public void setPopupPrerenderedSectionNames(String[] sectionNames) {
+    fastScrollPopup.setPrerenderedSectionNames(sectionNames);
+  }
+
   public FastScrollPopup getFastScrollPopup() {
     return fastScrollPopup;
   }
 
+  /*package*/ void setIndexMode(boolean indexMode) {
+    this.indexMode = indexMode;
+    updateIndexLabels();
+  }
+
+  /*package*/ boolean isIndexMode() {
+    return indexMode;
+  }
+
+  /*package*/ void setIndexLabels(String[] labels) {
+    indexBar.setFixedLabels(labels);
+    updateIndexLabels();
+  }
+
+  /**
+   * Rebuilds the labels of the index when the sections changed. The sections are the section index or the snapshot
+   * of the section cache, the adapter is not asked here. The labels stay empty until the section cache is ready.
+   */
+  /*package*/ void updateIndexLabels() {
+    if (indexMode) {
+      indexBar.update(recyclerView.getResolvedSectionIndex());
+      recyclerView.invalidateScrollbar();
+    }
+  }
+
+  /*package*/ int getIndexBarWidth() {
+    return indexBar.width;
+  }
+
   /**
    * Handles the touch event and determines whether to show the fast scroller (or updates it if
    * it is already showing).
@@ -218,6 +270,17 @@ public class FastScrollBar {
 
     int action = ev.getAction();
     int y = (int) ev.getY();
+    if (indexMode) {
+      handleIndexTouchEvent(action, downX, y);
+      return;
+    }
+    if (action == MotionEvent.ACTION_DOWN && velocityTracker != null) {
+      velocityTracker.clear();
+    }
+    if (velocityTracker == null) {
+      velocityTracker = VelocityTracker.obtain();
+    }
+    velocityTracker.addMovement(ev);
     switch (action) {
       case MotionEvent.ACTION_DOWN:
         if (isNearThumb(downX, downY)) {
@@ -232,6 +295,7 @@ public class FastScrollBar {
             Math.abs(y - downY) > config.getScaledTouchSlop()) {
           recyclerView.getParent().requestDisallowInterceptTouchEvent(true);
           isDragging = true;
+          recyclerView.onThumbDragStarted();
           if (canThumbDetach) {
             isThumbDetached = true;
           }
@@ -240,15 +304,36 @@ public class FastScrollBar {
           animateScrollbar(true);
         }
         if (isDragging) {
+          if (recyclerView.metrics != null) {
+            recyclerView.metrics.moveEvents++;
+          }
           // Update the fastscroller section name at this touch position
           int top = recyclerView.getBackgroundPadding().top;
           int bottom = recyclerView.getHeight() - recyclerView.getBackgroundPadding().bottom - thumbHeight;
           float boundedY = (float) Math.max(top, Math.min(bottom, y - touchOffset));
-          String sectionName = recyclerView.scrollToPositionAtProgress((boundedY - top) / (bottom - top));
+          float touchFraction = (boundedY - top) / (bottom - top);
+          lastTouchY = boundedY;
+          lastTouchFraction = touchFraction;
+          recyclerView.onThumbMoved(touchFraction);
+          if (!jumpScheduler.onThumbMoved(touchFraction, config.getScaledTouchSlop() / (float) (bottom - top))) {
+            break; // Keep the section the thumb snapped to until the thumb actually moves
+          }
+          String sectionName;
+          if (recyclerView.getEffectiveJumpMode() == FastScrollRecyclerView.JUMP_MODE_IMMEDIATE) {
+            sectionName = recyclerView.jumpToProgress(touchFraction);
+          } else {
+            sectionName = recyclerView.getSectionNameAtProgress(touchFraction);
+            jumpScheduler.schedule(touchFraction);
+            setThumbOffset(thumbOffset.x, (int) boundedY);
+          }
+          if (recyclerView.metrics != null && !sectionName.equals(fastScrollPopup.getSectionName())) {
+            recyclerView.metrics.sectionChanges++;
+          }
           fastScrollPopup.setSectionName(sectionName);
+          fastScrollPopup.setPreview(recyclerView.getSectionPreview(touchFraction, sectionName));
           fastScrollPopup.animateVisibility(!sectionName.isEmpty());
-          recyclerView.invalidate(fastScrollPopup.updateFastScrollerBounds(recyclerView, lastY));
-          lastTouchY = boundedY;
+          popupTouchY = lastY;
+          recyclerView.invalidateFastScroller(fastScrollPopup.updateFastScrollerBounds(recyclerView, lastY));
         }
         break;
       case MotionEvent.ACTION_UP:
@@ -257,15 +342,111 @@ public class FastScrollBar {
         lastTouchY = 0;
         ignoreDragGesture = false;
         if (isDragging) {
+          jumpScheduler.flush();
           isDragging = false;
+          recyclerView.onThumbDragEnded();
+          recyclerView.invalidateScrollbar();
           fastScrollPopup.animateVisibility(false);
           recyclerView.hideScrollBar();
         }
+        velocityTracker.recycle();
+        velocityTracker = null;
+        break;
+    }
+  }
+
+  /**
+   * Handles the touch event in index mode, where touching a label jumps to its section right away.
+   */
+  private void handleIndexTouchEvent(int action, int downX, int y) {
+    switch (action) {
+      case MotionEvent.ACTION_DOWN:
+        if (indexBar.contains(downX, y)) {
+          recyclerView.getParent().requestDisallowInterceptTouchEvent(true);
+          isDragging = true;
+          recyclerView.onThumbDragStarted();
+          jumpToIndexLabel(indexBar.getLabelAt(y), y);
+        }
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (isDragging) {
+          jumpToIndexLabel(indexBar.getLabelAt(y), y);
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        if (isDragging) {
+          isDragging = false;
+          indexBar.setActiveLabel(-1);
+          recyclerView.onThumbDragEnded();
+          fastScrollPopup.animateVisibility(false);
+        }
         break;
     }
   }
 
+  /**
+   * Jumps to the section of the index label, unless the label did not change since the last move.
+   */
+  private void jumpToIndexLabel(int label, int y) {
+    if (label != indexBar.getActiveLabel()) {
+      indexBar.setActiveLabel(label);
+      if (recyclerView.metrics != null) {
+        recyclerView.metrics.jumps++;
+        recyclerView.metrics.sectionChanges++;
+      }
+      recyclerView.stopScroll();
+      recyclerView.scrollToPositionWithOffset(indexBar.getPosition(label), 0);
+      fastScrollPopup.setSectionName(indexBar.getLabel(label));
+      fastScrollPopup.animateVisibility(true);
+    }
+    popupTouchY = y;
+    recyclerView.invalidateFastScroller(fastScrollPopup.updateFastScrollerBounds(recyclerView, y));
+  }
+
+  /**
+   * Returns the vertical velocity of the touch, in pixels per second.
+   */
+  /*package*/ float getThumbVelocity() {
+    if (velocityTracker == null) {
+      return 0f;
+    }
+    velocityTracker.computeCurrentVelocity(1000);
+    return velocityTracker.getYVelocity();
+  }
+
+  /**
+   * Shows a section name that was loaded asynchronously, if the thumb is still dragged.
+   */
+  /*package*/ void onSectionNameLoaded(String sectionName) {
+    if (!isDragging) {
+      return;
+    }
+    if (recyclerView.metrics != null && !sectionName.equals(fastScrollPopup.getSectionName())) {
+      recyclerView.metrics.sectionChanges++;
+    }
+    fastScrollPopup.setSectionName(sectionName);
+    fastScrollPopup.setPreview(recyclerView.getSectionPreview(lastTouchFraction, sectionName));
+    fastScrollPopup.animateVisibility(!sectionName.isEmpty());
+    recyclerView.invalidateFastScroller(fastScrollPopup.updateFastScrollerBounds(recyclerView, popupTouchY));
+  }
+
+  /**
+   * Shows a section preview that was loaded in the background, if the popup still shows its section.
+   */
+  /*package*/ void onSectionPreviewLoaded(String sectionName, Bitmap preview) {
+    if (isDragging && sectionName.equals(fastScrollPopup.getSectionName())) {
+      fastScrollPopup.setPreview(preview);
+      recyclerView.invalidateFastScroller(fastScrollPopup.updateFastScrollerBounds(recyclerView, popupTouchY));
+    }
+  }
+
   protected void draw(Canvas canvas) {
+    if (indexMode) {
+      indexBar.draw(canvas);
+      fastScrollPopup.draw(canvas);
+      return;
+    }
     if (thumbOffset.x < 0 || thumbOffset.y < 0) {
       return;
     }
@@ -274,57 +455,86 @@ public class FastScrollBar {
     if (trackPaint.getAlpha() > 0) {
       canvas.drawRect(thumbOffset.x, 0, thumbOffset.x + thumbWidth, recyclerView.getHeight(), trackPaint);
     }
-    canvas.drawPath(thumbPath, thumbPaint);
+    if (thumbCurvature == 0) {
+      canvas.drawRect(thumbOffset.x, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight,
+          thumbPaint);
+    } else {
+      int saveCount = canvas.save();
+      canvas.translate(thumbOffset.x, thumbOffset.y);
+      canvas.drawPath(thumbPath, thumbPaint);
+      canvas.restoreToCount(saveCount);
+    }
 
     // Draw the popup
     fastScrollPopup.draw(canvas);
   }
 
+  /**
+   * Draws the thumb without anti-aliasing or curvature, to save work on slow devices.
+   */
+  /*package*/ void setReducedQuality(boolean reducedQuality) {
+    if (this.reducedQuality == reducedQuality) {
+      return;
+    }
+    invalidateRect
+        .set(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
+    this.reducedQuality = reducedQuality;
+    thumbPaint.setAntiAlias(!reducedQuality);
+    updateThumbPath();
+    recyclerView.invalidateFastScroller(invalidateRect);
+  }
+
   /**
    * Animates the width and color of the scrollbar.
    */
   protected void animateScrollbar(boolean isScrolling) {
-    if (scrollbarAnimator != null) {
-      scrollbarAnimator.cancel();
-    }
+    scrollbarAnimator.animateScrollbar(isScrolling ? thumbMaxWidth : thumbMinWidth,
+        isScrolling ? thumbActiveColor : thumbInactiveColor);
+  }
 
-    scrollbarAnimator = new AnimatorSet();
-    ObjectAnimator trackWidthAnim = ObjectAnimator.ofInt(this, "trackWidth",
-        isScrolling ? thumbMaxWidth : thumbMinWidth);
-    ObjectAnimator thumbWidthAnim = ObjectAnimator.ofInt(this, "thumbWidth",
-        isScrolling ? thumbMaxWidth : thumbMinWidth);
-    scrollbarAnimator.playTogether(trackWidthAnim, thumbWidthAnim);
-    if (thumbActiveColor != thumbInactiveColor) {
-      ValueAnimator colorAnimation = ValueAnimator
-          .ofObject(new ArgbEvaluator(), thumbPaint.getColor(), isScrolling ? thumbActiveColor : thumbInactiveColor);
-      colorAnimation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-
-        @Override
-        public void onAnimationUpdate(ValueAnimator animator) {
-          thumbPaint.setColor((Integer) animator.getAnimatedValue());
-          recyclerView
-              .invalidate(thumbOffset.x, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
-        }
-      });
-      scrollbarAnimator.play(colorAnimation);
-    }
-    scrollbarAnimator.setDuration(SCROLL_BAR_VIS_DURATION);
-    scrollbarAnimator.start();
+  /**
+   * Hides the scrollbar after the delay, unless the thumb is being dragged by then.
+   */
+  /*package*/ void scheduleHide(long delayMillis) {
+    scrollbarAnimator.scheduleHide(delayMillis);
+  }
+
+  /*package*/ void cancelHide() {
+    scrollbarAnimator.cancelHide();
   }
 
   /**
-   * Updates the path for the thumb drawable.
+   * Ends all running animations, e.g. when the view is detached.
+   */
+  /*package*/ void endAnimations() {
+    scrollbarAnimator.end();
+  }
+
+  /*package*/ void onAttached() {
+    jumpScheduler.onAttached();
+  }
+
+  /*package*/ void onDetached() {
+    endAnimations();
+    jumpScheduler.onDetached();
+  }
+
+  /**
+   * Updates the path for the thumb drawable. The path is relative to the thumb offset, so it only changes with the
+   * width of the thumb, and is not needed at all when the thumb is a plain rect.
    */
   private void updateThumbPath() {
-    thumbCurvature = showThumbCurvature ? thumbMaxWidth - thumbWidth : 0;
+    thumbCurvature = showThumbCurvature && !reducedQuality ? thumbMaxWidth - thumbWidth : 0;
+    if (thumbCurvature == 0 || (thumbPathWidth == thumbWidth && thumbPathCurvature == thumbCurvature)) {
+      return;
+    }
+    thumbPathWidth = thumbWidth;
+    thumbPathCurvature = thumbCurvature;
     thumbPath.reset();
-    thumbPath.moveTo(thumbOffset.x + thumbWidth, thumbOffset.y);                   // tr
-    thumbPath.lineTo(thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);     // br
-    thumbPath.lineTo(thumbOffset.x, thumbOffset.y + thumbHeight);                  // bl
-    thumbPath.cubicTo(thumbOffset.x, thumbOffset.y + thumbHeight,
-        thumbOffset.x - thumbCurvature,
-        thumbOffset.y + thumbHeight / 2,
-        thumbOffset.x, thumbOffset.y);                                             // bl2tl
+    thumbPath.moveTo(thumbWidth, 0);                                               // tr
+    thumbPath.lineTo(thumbWidth, thumbHeight);                                     // br
+    thumbPath.lineTo(0, thumbHeight);                                              // bl
+    thumbPath.cubicTo(0, thumbHeight, -thumbCurvature, thumbHeight / 2, 0, 0);     // bl2tl
     thumbPath.close();
   }
 
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * <p>The alphabetical side index drawn by {@link FastScrollBar} in
+ * {@link FastScrollRecyclerView#BAR_MODE_INDEX}. Tapping or sliding over a label jumps to the first item of its
+ * section.</p>
+ *
+ * <p>The labels, their measured widths and the position each label jumps to are computed once per
+ * {@link SectionIndex}, when the mode, the labels, the adapter or its items change. Drawing the index and sweeping
+ * across it only reads arrays and never calls the adapter.</p>
+ */
+/*package*/ class FastScrollIndexBar {
+
+  private final FastScrollRecyclerView recyclerView;
+  private final Rect bounds = new Rect();
+  private final Rect invalidateRect = new Rect();
+  /*package*/ final Paint textPaint;
+  /*package*/ final int width;
+
+  private String[] fixedLabels; // The labels set by the app, or null to show the section labels
+  private SectionIndex index; // The index the labels were built from
+  private String[] labels = new String[0];
+  private float[] labelWidths = new float[0];
+  private int[] positions = new int[0]; // The position each label jumps to
+  private float baselineOffset; // From the center of a cell to the baseline of its label
+  private float labelHeight;
+  private int activeLabel = -1;
+
+  /*package*/ FastScrollIndexBar(FastScrollRecyclerView recyclerView, int width, float textSize, int textColor) {
+    this.recyclerView = recyclerView;
+    this.width = width;
+    textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    textPaint.setTextAlign(Paint.Align.LEFT);
+    textPaint.setTextSize(textSize);
+    textPaint.setColor(textColor);
+    Paint.FontMetrics fontMetrics = textPaint.getFontMetrics();
+    labelHeight = fontMetrics.descent - fontMetrics.ascent;
+    baselineOffset = -(fontMetrics.ascent + fontMetrics.descent) / 2;
+  }
+
+  /**
+   * Sets the labels to show, e.g. "#" and A to Z, instead of the section labels. Each label jumps to the first
+   * section whose label does not sort before it, ignoring case, or to the last item if there is no such section.
+   */
+  /*package*/ void setFixedLabels(String[] labels) {
+    fixedLabels = labels == null ? null : labels.clone();
+    index = null;
+  }
+
+  /**
+   * Rebuilds the labels and the position table if the section index changed.
+   */
+  /*package*/ void update(SectionIndex sectionIndex) {
+    if (sectionIndex == null || sectionIndex.getSectionCount() == 0) {
+      index = null;
+      labels = new String[0];
+      return;
+    }
+    if (sectionIndex == index) {
+      return;
+    }
+    index = sectionIndex;
+    int sectionCount = sectionIndex.getSectionCount();
+    if (fixedLabels == null) {
+      labels = new String[sectionCount];
+      positions = new int[sectionCount];
+      for (int section = 0; section < sectionCount; section++) {
+        labels[section] = sectionIndex.getSectionLabel(section);
+        positions[section] = sectionIndex.getPositionForSection(section);
+      }
+    } else {
+      // Both lists are sorted, so one pass maps every fixed label to its section
+      labels = fixedLabels;
+      positions = getPositionsForLabels(labels, sectionIndex);
+    }
+    int lastPosition = Math.max(0, sectionIndex.getItemCount() - 1);
+    labelWidths = new float[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      labelWidths[i] = textPaint.measureText(labels[i]);
+      positions[i] = Math.min(positions[i], lastPosition);
+    }
+    activeLabel = -1;
+  }
+
+  /**
+   * Maps each of the sorted labels to the first position of the first section whose label does not sort before it,
+   * ignoring case, or to the last position if every section sorts before it. Both lists are sorted, so this is one
+   * pass over the labels and the sections.
+   */
+  /*package*/ static int[] getPositionsForLabels(String[] labels, SectionIndex sectionIndex) {
+    int sectionCount = sectionIndex.getSectionCount();
+    int lastPosition = Math.max(0, sectionIndex.getItemCount() - 1);
+    int[] positions = new int[labels.length];
+    int section = 0;
+    for (int i = 0; i < labels.length; i++) {
+      while (section < sectionCount && sectionIndex.getSectionLabel(section).compareToIgnoreCase(labels[i]) < 0) {
+        section++;
+      }
+      positions[i] = section < sectionCount ? sectionIndex.getPositionForSection(section) : lastPosition;
+    }
+    return positions;
+  }
+
+  /**
+   * Places the index along the end edge of the list.
+   */
+  /*package*/ Rect updateBounds() {
+    Rect padding = recyclerView.getBackgroundPadding();
+    if (recyclerView.isRtl) {
+      bounds.left = padding.left;
+      bounds.right = bounds.left + width;
+    } else {
+      bounds.right = recyclerView.getWidth() - padding.right;
+      bounds.left = bounds.right - width;
+    }
+    bounds.top = padding.top;
+    bounds.bottom = recyclerView.getHeight() - padding.bottom;
+    return bounds;
+  }
+
+  /*package*/ boolean contains(int x, int y) {
+    return labels.length > 0 && updateBounds().contains(x, y);
+  }
+
+  /**
+   * Returns the label at the touch position, clamped to the first and last label.
+   */
+  /*package*/ int getLabelAt(int y) {
+    int label = (int) ((long) (y - bounds.top) * labels.length / Math.max(1, bounds.height()));
+    return Math.max(0, Math.min(label, labels.length - 1));
+  }
+
+  /*package*/ String getLabel(int label) {
+    return labels[label];
+  }
+
+  /*package*/ int getPosition(int label) {
+    return positions[label];
+  }
+
+  /*package*/ int getActiveLabel() {
+    return activeLabel;
+  }
+
+  /**
+   * Highlights the label being touched, or none for -1.
+   */
+  /*package*/ void setActiveLabel(int label) {
+    if (activeLabel != label) {
+      activeLabel = label;
+      invalidateRect.set(bounds);
+      recyclerView.invalidateFastScroller(invalidateRect);
+    }
+  }
+
+  /*package*/ void draw(Canvas canvas) {
+    if (labels.length == 0) {
+      return;
+    }
+    updateBounds();
+    float cellHeight = bounds.height() / (float) labels.length;
+    // Skip labels when they do not fit, touching still reaches every label
+    int step = Math.max(1, (int) Math.ceil(labelHeight / cellHeight));
+    float centerX = bounds.exactCenterX();
+    for (int i = 0; i < labels.length; i += step) {
+      float centerY = bounds.top + (i + 0.5f) * cellHeight;
+      textPaint.setFakeBoldText(i == activeLabel);
+      canvas.drawText(labels[i], centerX - labelWidths[i] / 2, centerY + baselineOffset, textPaint);
+    }
+    textPaint.setFakeBoldText(false);
+  }
+
+}
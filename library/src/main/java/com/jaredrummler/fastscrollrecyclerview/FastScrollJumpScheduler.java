@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.SystemClock;
+
+/**
+ * Coalesces the jumps requested while dragging the thumb, so the list is scrolled (and laid out) at most once per
+ * frame, to the latest touch position. In {@link FastScrollRecyclerView#JUMP_MODE_PREVIEW} the jump waits for the
+ * preview interval, or for the thumb to be released.
+ *
+ * <p>When snapping to sections, the jump on release (or after the thumb rested for the dwell time) goes straight to
+ * the start of the section, so the list is only laid out once. Moves within the touch slop neither restart the dwell
+ * time nor leave the section the thumb snapped to.</p>
+ */
+/*package*/ class FastScrollJumpScheduler implements FrameClock.Callback {
+
+  private final FastScrollRecyclerView recyclerView;
+
+  private boolean pending;
+  private float pendingFraction;
+  private long lastJumpTime; // The uptime of the last jump of this drag, or 0
+  private float lastFraction;
+  private float restFraction = Float.NaN; // Where the thumb came to rest, moves within the slop of it are jitter
+  private boolean snapped; // Snapped to the section at restFraction, until the thumb moves past the slop
+  private long snapTime; // The uptime at which to snap to the section under the resting thumb, or 0
+
+  /*package*/ FastScrollJumpScheduler(FastScrollRecyclerView recyclerView) {
+    this.recyclerView = recyclerView;
+  }
+
+  /**
+   * Called for every move of the thumb, in all jump modes.
+   *
+   * @param touchFraction
+   *     the position of the thumb on the track
+   * @param slopFraction
+   *     the touch slop as a fraction of the track
+   * @return {@code false} if the thumb rests on the section it snapped to and the move must be ignored
+   */
+  /*package*/ boolean onThumbMoved(float touchFraction, float slopFraction) {
+    boolean resting = Math.abs(touchFraction - restFraction) <= slopFraction;
+    if (resting && snapped) {
+      return false; // Jitter of the finger, or a move clamped at the end of the track
+    }
+    lastFraction = touchFraction;
+    if (!resting) {
+      restFraction = touchFraction;
+      snapped = false;
+      long dwellTime = recyclerView.getSnapToSectionDwellTime();
+      if (dwellTime > 0) {
+        snapTime = SystemClock.uptimeMillis() + dwellTime;
+        FrameClock.getInstance().start(this);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Jumps to the touch fraction on the next frame, replacing any jump that is still pending.
+   */
+  /*package*/ void schedule(float touchFraction) {
+    pendingFraction = touchFraction;
+    if (lastJumpTime == 0) {
+      lastJumpTime = SystemClock.uptimeMillis(); // The drag started, the preview interval counts from here
+    }
+    if (!pending) {
+      pending = true;
+      if (recyclerView.getEffectiveJumpMode() != FastScrollRecyclerView.JUMP_MODE_PREVIEW ||
+          recyclerView.getEffectivePreviewJumpInterval() > 0) {
+        FrameClock.getInstance().start(this);
+      }
+    }
+  }
+
+  /**
+   * Applies the pending jump now, e.g. when the finger is lifted, or snaps to the section of the thumb.
+   */
+  /*package*/ void flush() {
+    boolean jump = pending;
+    float fraction = lastFraction;
+    cancel();
+    if (recyclerView.isSnapToSectionEnabled() && recyclerView.snapToSectionAtProgress(fraction)) {
+      return;
+    }
+    if (jump) {
+      recyclerView.jumpToProgress(pendingFraction);
+    }
+  }
+
+  /*package*/ void cancel() {
+    pending = false;
+    lastJumpTime = 0;
+    restFraction = Float.NaN;
+    snapped = false;
+    snapTime = 0;
+    FrameClock.getInstance().stop(this);
+  }
+
+  /**
+   * Stops waiting for frames while the list is detached, so the frame clock does not keep it reachable.
+   */
+  /*package*/ void onDetached() {
+    FrameClock.getInstance().stop(this);
+  }
+
+  /*package*/ void onAttached() {
+    if (pending || snapTime > 0) {
+      FrameClock.getInstance().start(this);
+    }
+  }
+
+  @Override public long doFrame(long frameTimeMillis) {
+    long next = pending ? doJumpFrame(frameTimeMillis) : FrameClock.STOP;
+    if (snapTime > 0) {
+      if (frameTimeMillis >= snapTime) {
+        snapTime = 0;
+        if (recyclerView.snapToSectionAtProgress(lastFraction)) {
+          pending = false; // The snap replaces the pending jump
+          snapped = true;
+          lastJumpTime = frameTimeMillis;
+          return FrameClock.STOP;
+        }
+      } else if (next == FrameClock.STOP || next > snapTime) {
+        next = snapTime;
+      }
+    }
+    return next;
+  }
+
+  private long doJumpFrame(long frameTimeMillis) {
+    if (recyclerView.getEffectiveJumpMode() == FastScrollRecyclerView.JUMP_MODE_PREVIEW) {
+      if (recyclerView.getEffectivePreviewJumpInterval() <= 0) {
+        return FrameClock.STOP; // Jump on release
+      }
+      long nextJumpTime = lastJumpTime + recyclerView.getEffectivePreviewJumpInterval();
+      if (frameTimeMillis < nextJumpTime) {
+        return nextJumpTime;
+      }
+    }
+    pending = false;
+    lastJumpTime = frameTimeMillis;
+    recyclerView.jumpToProgress(pendingFraction);
+    return FrameClock.STOP;
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * <p>Counters collected while the thumb is dragged, see
+ * {@link FastScrollRecyclerView#setOnFastScrollMetricsListener(FastScrollRecyclerView.OnFastScrollMetricsListener)}.</p>
+ *
+ * <p>The same instance is reused for every drag, copy the values if they are needed after the listener returns.</p>
+ */
+public class FastScrollMetrics {
+
+  // The number of move events handled while dragging the thumb
+  public int moveEvents;
+  // The number of jumps issued (calls to scrollToPositionAtProgress)
+  public int jumps;
+  // The number of layout passes of the list while dragging the thumb
+  public int layoutPasses;
+  // The time spent in scrollToPositionAtProgress, in nanoseconds
+  public long scrollToPositionNanos;
+  // The time spent getting section names from the adapter, in nanoseconds
+  public long sectionNameNanos;
+  // The number of times the section shown in the popup changed
+  public int sectionChanges;
+  // How long the thumb was dragged, in milliseconds
+  public long durationMillis;
+  // The estimated memory used by the section runs that served the lookups, in bytes, or 0 if there are none
+  public long sectionCacheBytes;
+
+  /*package*/ boolean recording;
+  /*package*/ long startTime;
+
+  /*package*/ void start(long uptimeMillis) {
+    moveEvents = 0;
+    jumps = 0;
+    layoutPasses = 0;
+    scrollToPositionNanos = 0;
+    sectionNameNanos = 0;
+    sectionChanges = 0;
+    durationMillis = 0;
+    sectionCacheBytes = 0;
+    startTime = uptimeMillis;
+    recording = true;
+  }
+
+  /*package*/ void finish(long uptimeMillis) {
+    durationMillis = uptimeMillis - startTime;
+    recording = false;
+  }
+
+  @Override public String toString() {
+    return "FastScrollMetrics{" +
+        "moveEvents=" + moveEvents +
+        ", jumps=" + jumps +
+        ", layoutPasses=" + layoutPasses +
+        ", scrollToPositionNanos=" + scrollToPositionNanos +
+        ", sectionNameNanos=" + sectionNameNanos +
+        ", sectionChanges=" + sectionChanges +
+        ", durationMillis=" + durationMillis +
+        ", sectionCacheBytes=" + sectionCacheBytes +
+        '}';
+  }
+
+}
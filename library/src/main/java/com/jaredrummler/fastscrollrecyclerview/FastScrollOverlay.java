@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+/**
+ * <p>Draws the fast scroller in a view added to the {@link android.view.ViewGroupOverlay} of the recycler view.</p>
+ *
+ * <p>The view has a display list of its own, so invalidating the scroll bar or the popup only records this view
+ * again. The recycler view, its items and item decorations keep their display lists and are not drawn again.</p>
+ */
+/*package*/ class FastScrollOverlay extends View {
+
+  private final FastScrollRecyclerView recyclerView;
+
+  /*package*/ FastScrollOverlay(FastScrollRecyclerView recyclerView) {
+    super(recyclerView.getContext());
+    this.recyclerView = recyclerView;
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    recyclerView.updateScrollbarIfDirty();
+    recyclerView.fastScrollBar.draw(canvas);
+  }
+
+}
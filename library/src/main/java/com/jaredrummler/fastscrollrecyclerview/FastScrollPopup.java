@@ -18,10 +18,9 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
-import android.animation.Animator;
-import android.animation.ObjectAnimator;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -31,23 +30,40 @@ import android.graphics.drawable.Drawable;
 import android.support.annotation.ColorInt;
 import android.util.AttributeSet;
 
+import java.util.HashMap;
+
 /**
  * The fast scroller popup that shows the section name the list will jump to.
  */
 public class FastScrollPopup {
 
   private static final float FAST_SCROLL_OVERLAY_Y_OFFSET_FACTOR = 1.5f;
+  private static final int MAX_CACHED_TEXT_BOUNDS = 256;
+  private static final int MAX_ATLAS_WIDTH = 1024;
+  private static final int MAX_ATLAS_HEIGHT = 2048;
 
   private final Rect backgroundBounds = new Rect(); // The absolute bounds of the fast scroller bg
   private final Rect invalidateRect = new Rect();
   private final Rect tmpRect = new Rect();
   private final Rect textBounds = new Rect();
+  private final Rect atlasDstRect = new Rect();
+  private final Rect previewBounds = new Rect(); // The absolute bounds of the section preview
+  private final Rect previewSrcRect = new Rect();
+
+  // The measured bounds of each section name, so switching between sections does not measure the text again
+  private final HashMap<String, Rect> textBoundsCache = new HashMap<String, Rect>();
 
   private FastScrollRecyclerView recyclerView;
-  private Animator alphaAnimator;
+  /*package*/ ScrollbarAnimator animator;
   private Resources resources;
   private Drawable background;
   private Paint textPaint;
+  private Bitmap atlas; // The prerendered section names, see setPrerenderedSectionNames(String[])
+  private HashMap<String, Rect> atlasRegions;
+  private Rect atlasRegion; // The region of the current section name in the atlas
+  private Bitmap preview; // The preview of the current section, see FastScrollRecyclerView#setSectionPreviewProvider
+  private Paint previewPaint;
+  private int previewSize;
   private String sectionName;
   private int originalBackgroundSize;
   private float alpha;
@@ -71,6 +87,8 @@ public class FastScrollPopup {
     textPaint.setColor(textColor);
     textPaint.setAntiAlias(true);
     textPaint.setTextSize(textSize);
+    previewPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    previewSize = resources.getDimensionPixelSize(R.dimen.fastscroll_popup_preview_size);
     ta.recycle();
   }
 
@@ -80,9 +98,113 @@ public class FastScrollPopup {
   protected void setSectionName(String sectionName) {
     if (!sectionName.equals(this.sectionName)) {
       this.sectionName = sectionName;
-      textPaint.getTextBounds(sectionName, 0, sectionName.length(), textBounds);
+      textBounds.set(getTextBounds(sectionName));
+      atlasRegion = atlasRegions == null ? null : atlasRegions.get(sectionName);
+    }
+  }
+
+  public String getSectionName() {
+    return sectionName;
+  }
+
+  /**
+   * Sets the preview image shown next to the popup, center cropped to a square.
+   *
+   * @param preview
+   *     the preview, or {@code null} to only show the section name
+   */
+  protected void setPreview(Bitmap preview) {
+    if (this.preview == preview) {
+      return;
+    }
+    this.preview = preview;
+    if (preview != null) {
+      int side = Math.min(preview.getWidth(), preview.getHeight());
+      int left = (preview.getWidth() - side) / 2;
+      int top = (preview.getHeight() - side) / 2;
+      previewSrcRect.set(left, top, left + side, top + side);
+    }
+  }
+
+  /**
+   * Returns the measured bounds of the text, measuring it only the first time a section name is seen.
+   */
+  private Rect getTextBounds(String text) {
+    Rect bounds = textBoundsCache.get(text);
+    if (bounds == null) {
+      bounds = new Rect();
+      textPaint.getTextBounds(text, 0, text.length(), bounds);
       // Update the width to use measureText since that is more accurate
-      textBounds.right = (int) (textBounds.left + textPaint.measureText(sectionName));
+      bounds.right = (int) (bounds.left + textPaint.measureText(text));
+      if (textBoundsCache.size() >= MAX_CACHED_TEXT_BOUNDS) {
+        textBoundsCache.clear();
+      }
+      textBoundsCache.put(text, bounds);
+    }
+    return bounds;
+  }
+
+  /**
+   * <p>Renders the given section names once into a bitmap, so showing one of them draws a region of that bitmap
+   * instead of measuring and laying out the text again. Use this when the adapter only has a small, known set of
+   * section names (e.g. A-Z). Section names that are not in the set are drawn as text.</p>
+   *
+   * @param sectionNames
+   *     the section names to prerender, or {@code null} to release the bitmap.
+   */
+  public void setPrerenderedSectionNames(String[] sectionNames) {
+    if (atlas != null) {
+      atlas.recycle();
+      atlas = null;
+    }
+    atlasRegions = null;
+    atlasRegion = null;
+    if (sectionNames == null || sectionNames.length == 0) {
+      return;
+    }
+
+    // Pack the section names into rows of at most MAX_ATLAS_WIDTH pixels
+    HashMap<String, Rect> regions = new HashMap<String, Rect>();
+    int x = 0, y = 0, rowHeight = 0, width = 0;
+    for (String name : sectionNames) {
+      if (name == null || name.isEmpty() || regions.containsKey(name)) {
+        continue;
+      }
+      Rect bounds = getTextBounds(name);
+      if (bounds.width() > MAX_ATLAS_WIDTH) {
+        continue;
+      }
+      if (x + bounds.width() > MAX_ATLAS_WIDTH) {
+        x = 0;
+        y += rowHeight;
+        rowHeight = 0;
+      }
+      if (y + bounds.height() > MAX_ATLAS_HEIGHT) {
+        break;
+      }
+      regions.put(name, new Rect(x, y, x + bounds.width(), y + bounds.height()));
+      x += bounds.width();
+      width = Math.max(width, x);
+      rowHeight = Math.max(rowHeight, bounds.height());
+    }
+    if (regions.isEmpty() || width == 0 || y + rowHeight == 0) {
+      return;
+    }
+
+    // ALPHA_8 bitmaps are drawn with the paint color, so changing the text color does not require a new atlas
+    atlas = Bitmap.createBitmap(width, y + rowHeight, Bitmap.Config.ALPHA_8);
+    Canvas canvas = new Canvas(atlas);
+    int color = textPaint.getColor();
+    textPaint.setColor(Color.BLACK);
+    for (String name : regions.keySet()) {
+      Rect region = regions.get(name);
+      Rect bounds = getTextBounds(name);
+      canvas.drawText(name, region.left - bounds.left, region.top - bounds.top, textPaint);
+    }
+    textPaint.setColor(color);
+    atlasRegions = regions;
+    if (sectionName != null) {
+      atlasRegion = atlasRegions.get(sectionName);
     }
   }
 
@@ -93,6 +215,7 @@ public class FastScrollPopup {
    */
   protected Rect updateFastScrollerBounds(FastScrollRecyclerView rv, int lastTouchY) {
     invalidateRect.set(backgroundBounds);
+    invalidateRect.union(previewBounds);
 
     if (isVisible()) {
       // Calculate the dimensions and position of the fast scroller popup
@@ -100,7 +223,7 @@ public class FastScrollPopup {
       int bgPadding = (originalBackgroundSize - textBounds.height()) / 2;
       int bgHeight = originalBackgroundSize;
       int bgWidth = Math.max(originalBackgroundSize, textBounds.width() + (2 * bgPadding));
-      if (Utilities.isRtl(resources)) {
+      if (rv.isRtl) {
         backgroundBounds.left = rv.getBackgroundPadding().left + (2 * rv.getMaxScrollbarWidth());
         backgroundBounds.right = backgroundBounds.left + bgWidth;
       } else {
@@ -111,12 +234,30 @@ public class FastScrollPopup {
       backgroundBounds.top =
           Math.max(edgePadding, Math.min(backgroundBounds.top, rv.getHeight() - edgePadding - bgHeight));
       backgroundBounds.bottom = backgroundBounds.top + bgHeight;
+
+      if (preview != null) {
+        // Show the preview beside the popup, on the side away from the scroll bar
+        if (rv.isRtl) {
+          previewBounds.left = backgroundBounds.right + edgePadding;
+          previewBounds.right = previewBounds.left + previewSize;
+        } else {
+          previewBounds.right = backgroundBounds.left - edgePadding;
+          previewBounds.left = previewBounds.right - previewSize;
+        }
+        int maxTop = rv.getHeight() - edgePadding - previewSize;
+        previewBounds.top = Math.max(edgePadding, Math.min(backgroundBounds.centerY() - previewSize / 2, maxTop));
+        previewBounds.bottom = previewBounds.top + previewSize;
+      } else {
+        previewBounds.setEmpty();
+      }
     } else {
       backgroundBounds.setEmpty();
+      previewBounds.setEmpty();
     }
 
     // Combine the old and new fast scroller bounds to create the full invalidate rect
     invalidateRect.union(backgroundBounds);
+    invalidateRect.union(previewBounds);
     return invalidateRect;
   }
 
@@ -126,19 +267,16 @@ public class FastScrollPopup {
   public void animateVisibility(boolean visible) {
     if (this.visible != visible) {
       this.visible = visible;
-      if (alphaAnimator != null) {
-        alphaAnimator.cancel();
-      }
-      alphaAnimator = ObjectAnimator.ofFloat(this, "alpha", visible ? 1f : 0f);
-      alphaAnimator.setDuration(visible ? 200 : 150);
-      alphaAnimator.start();
+      animator.animatePopup(visible);
     }
   }
 
   // Setter/getter for the popup alpha for animations
   public void setAlpha(float alpha) {
     this.alpha = alpha;
-    recyclerView.invalidate(backgroundBounds);
+    invalidateRect.set(backgroundBounds);
+    invalidateRect.union(previewBounds);
+    recyclerView.invalidateFastScroller(invalidateRect);
   }
 
   public float getAlpha() {
@@ -169,10 +307,21 @@ public class FastScrollPopup {
       background.setAlpha((int) (alpha * 255));
       background.draw(c);
       textPaint.setAlpha((int) (alpha * 255));
-      c.drawText(sectionName, (backgroundBounds.width() - textBounds.width()) / 2,
-          backgroundBounds.height() - (backgroundBounds.height() - textBounds.height()) / 2,
-          textPaint);
+      int x = (backgroundBounds.width() - textBounds.width()) / 2;
+      int y = backgroundBounds.height() - (backgroundBounds.height() - textBounds.height()) / 2;
+      if (atlasRegion != null) {
+        atlasDstRect.set(atlasRegion);
+        atlasDstRect.offsetTo(x + textBounds.left, y + textBounds.top);
+        c.drawBitmap(atlas, atlasRegion, atlasDstRect, textPaint);
+      } else {
+        c.drawText(sectionName, x, y, textPaint);
+      }
       c.restoreToCount(restoreCount);
+
+      if (preview != null && !previewBounds.isEmpty()) {
+        previewPaint.setAlpha((int) (alpha * 255));
+        c.drawBitmap(preview, previewSrcRect, previewBounds, previewPaint);
+      }
     }
   }
 
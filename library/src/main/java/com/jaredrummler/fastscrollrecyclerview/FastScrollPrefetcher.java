@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Creates and binds the view holders around the position the thumb is heading to while it is dragged, so the jump
+ * there finds them in the item view cache instead of creating and binding a whole screen of items in one frame.</p>
+ *
+ * <p>The target is predicted from the velocity of the thumb. Like RecyclerView's own prefetching, the work is done
+ * after a frame was drawn and stops at the deadline of the next frame. The item view cache is enlarged to hold the
+ * prefetched items for the duration of the drag, and restored to the size set by the app afterwards. The limits of
+ * the {@link RecyclerView.RecycledViewPool} are left alone, it may be shared with other lists and RecyclerView has
+ * no way to read them back.</p>
+ *
+ * <p>RecyclerView does not expose its Recycler, so it is taken from the {@link RecyclerView.ViewCacheExtension}
+ * callback the first time an item is created. Another extension can still be set, it is asked first.</p>
+ */
+/*package*/ class FastScrollPrefetcher extends RecyclerView.ViewCacheExtension implements Runnable {
+
+  private static final long LOOKAHEAD_MILLIS = 150; // How far ahead of the thumb to predict the target
+  private static final float VELOCITY_SMOOTHING = 0.5f;
+
+  private final FastScrollRecyclerView recyclerView;
+  /*package*/ RecyclerView.ViewCacheExtension delegate;
+  private RecyclerView.Recycler recycler;
+
+  private boolean active;
+  private boolean posted;
+  private float lastFraction;
+  private long lastTime;
+  private float velocity; // Of the touch fraction, per millisecond
+  private int windowSize; // The number of items to prefetch, twice the visible items
+  private int windowStart; // The start of the prefetch window
+  private int nextPosition; // The next position to prefetch
+  private int endPosition; // The end of the prefetch window, exclusive
+  private long frameIntervalNanos;
+
+  /*package*/ FastScrollPrefetcher(FastScrollRecyclerView recyclerView) {
+    this.recyclerView = recyclerView;
+  }
+
+  @Override public View getViewForPositionAndType(RecyclerView.Recycler recycler, int position, int type) {
+    this.recycler = recycler;
+    return delegate == null ? null : delegate.getViewForPositionAndType(recycler, position, type);
+  }
+
+  /**
+   * Called when the thumb starts being dragged.
+   */
+  /*package*/ void start() {
+    active = true;
+    lastTime = 0;
+    velocity = 0f;
+    windowStart = nextPosition = endPosition = 0;
+    windowSize = Math.max(1, recyclerView.getChildCount()) * 2;
+    recyclerView.applyItemViewCacheSize(windowSize);
+  }
+
+  /**
+   * Called for every move of the dragged thumb, to predict where it is heading.
+   */
+  /*package*/ void onThumbMoved(float touchFraction, long uptimeMillis) {
+    if (!active || recyclerView.getAdapter() == null) {
+      return;
+    }
+    if (lastTime > 0 && uptimeMillis > lastTime) {
+      float sample = (touchFraction - lastFraction) / (uptimeMillis - lastTime);
+      velocity += (sample - velocity) * VELOCITY_SMOOTHING;
+    }
+    lastFraction = touchFraction;
+    lastTime = uptimeMillis;
+
+    float predicted = Math.max(0f, Math.min(1f, touchFraction + velocity * LOOKAHEAD_MILLIS));
+    int itemCount = recyclerView.getAdapter().getItemCount();
+    int target = ScrollMath.getPositionAtProgress(itemCount, predicted);
+    if (target < windowStart || target >= endPosition - windowSize / 2) {
+      // Start over around the new target, items prefetched for the last one are found in the cache again
+      windowStart = nextPosition = Math.max(0, target - windowSize / 4);
+      endPosition = Math.min(itemCount, windowStart + windowSize);
+    }
+    schedule();
+  }
+
+  /**
+   * Called after the list was drawn, to continue prefetching in the idle time of the frame.
+   */
+  /*package*/ void schedule() {
+    if (active && !posted && nextPosition < endPosition) {
+      posted = true;
+      recyclerView.post(this);
+    }
+  }
+
+  /**
+   * Drops the posted prefetch while the list is detached, {@link #schedule()} posts it again.
+   */
+  /*package*/ void onDetached() {
+    recyclerView.removeCallbacks(this);
+    posted = false;
+  }
+
+  /**
+   * Called when the thumb is released. Restores the item view cache.
+   */
+  /*package*/ void stop() {
+    active = false;
+    recyclerView.applyItemViewCacheSize(0);
+  }
+
+  @Override public void run() {
+    posted = false;
+    if (!active || recycler == null || recyclerView.getAdapter() == null || recyclerView.hasPendingAdapterUpdates() ||
+        recyclerView.isComputingLayout()) {
+      return;
+    }
+    long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(recyclerView.getDrawingTime()) + getFrameIntervalNanos();
+    int itemCount = recyclerView.getAdapter().getItemCount();
+    endPosition = Math.min(endPosition, itemCount);
+    while (nextPosition < endPosition && System.nanoTime() < deadlineNanos) {
+      int position = nextPosition++;
+      if (recyclerView.findViewHolderForAdapterPosition(position) != null) {
+        continue; // Already on screen
+      }
+      View view = recycler.getViewForPosition(position);
+      recycler.recycleView(view); // Kept bound in the item view cache, which holds the whole window
+    }
+  }
+
+  private long getFrameIntervalNanos() {
+    if (frameIntervalNanos == 0) {
+      frameIntervalNanos = Utilities.getFrameIntervalNanos(recyclerView);
+    }
+    return frameIntervalNanos;
+  }
+
+}
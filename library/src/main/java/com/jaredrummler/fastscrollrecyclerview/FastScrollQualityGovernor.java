@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import com.jaredrummler.fastscrollrecyclerview.FastScrollRecyclerView.OnFastScrollQualityChangeListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Lowers the quality of the fast scroller while the thumb is dragged when the work it causes (jumping and laying
+ * out the list) does not fit in the frame budget, and raises it again once frames fit comfortably.</p>
+ *
+ * <p>Only frames in which a jump or a layout ran are judged, idle frames prove nothing. Raising the quality is a
+ * probe: it is undone by the first frame over budget, and each failed probe doubles the number of good frames needed
+ * before the next one, so a slow device settles instead of cycling between levels. At {@link #QUALITY_PREVIEW}
+ * nothing runs while dragging, so a probe is made after {@link #setStepUpFrames(int) the step up frames} (times the
+ * back off) have passed.</p>
+ *
+ * <p>The levels, from best to cheapest, are {@link #QUALITY_FULL}, {@link #QUALITY_JUMP_PER_FRAME},
+ * {@link #QUALITY_JUMP_THROTTLED} and {@link #QUALITY_PREVIEW}. The level is kept between drags.</p>
+ *
+ * @see FastScrollRecyclerView#setFastScrollQualityGovernorEnabled(boolean)
+ */
+public class FastScrollQualityGovernor {
+
+  /**
+   * The jump mode set with {@link FastScrollRecyclerView#setFastScrollJumpMode(int)}.
+   */
+  public static final int QUALITY_FULL = 0;
+  /**
+   * At most one jump per frame, like {@link FastScrollRecyclerView#JUMP_MODE_PER_FRAME}.
+   */
+  public static final int QUALITY_JUMP_PER_FRAME = 1;
+  /**
+   * At most one jump every {@link #setThrottleFrames(int) few frames}, and a thumb drawn without anti-aliasing or
+   * curvature.
+   */
+  public static final int QUALITY_JUMP_THROTTLED = 2;
+  /**
+   * Jumps only when the thumb is released, like {@link FastScrollRecyclerView#JUMP_MODE_PREVIEW}, and a thumb drawn
+   * without anti-aliasing or curvature.
+   */
+  public static final int QUALITY_PREVIEW = 3;
+
+  private static final long DEFAULT_FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(12);
+  private static final int DEFAULT_STEP_DOWN_FRAMES = 3;
+  private static final int DEFAULT_STEP_UP_FRAMES = 60;
+  private static final int DEFAULT_THROTTLE_FRAMES = 3;
+  private static final int MAX_BACKOFF = 16;
+
+  private final FastScrollRecyclerView recyclerView;
+  private final FrameClock.Callback frameCallback = new FrameClock.Callback() {
+
+    @Override public long doFrame(long frameTimeMillis) {
+      return onFrame();
+    }
+  };
+  private OnFastScrollQualityChangeListener listener;
+  private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+  private int stepDownFrames = DEFAULT_STEP_DOWN_FRAMES;
+  private int stepUpFrames = DEFAULT_STEP_UP_FRAMES;
+  private int throttleFrames = DEFAULT_THROTTLE_FRAMES;
+
+  private int level = QUALITY_FULL;
+  private boolean active;
+  private long workNanos; // The work measured since the last frame
+  private boolean worked; // Whether a jump or layout ran since the last frame
+  private int missedFrames; // Frames over budget at this level
+  private int goodFrames; // Consecutive frames with work within half the budget
+  private int idleFrames; // Consecutive frames without work
+  private boolean probing; // The level was raised and no frame with work confirmed it yet
+  private int backoff = 1; // Multiplies the step up frames, doubled by every failed probe
+
+  /*package*/ FastScrollQualityGovernor(FastScrollRecyclerView recyclerView) {
+    this.recyclerView = recyclerView;
+  }
+
+  /**
+   * Sets how long the work of the fast scroller may take in each frame. Defaults to 12ms, leaving room for drawing in
+   * a 60Hz frame.
+   */
+  public void setFrameBudgetMillis(float budgetMillis) {
+    frameBudgetNanos = (long) (budgetMillis * TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * Sets how many frames over budget lower the quality by one level. Defaults to 3.
+   */
+  public void setStepDownFrames(int frames) {
+    stepDownFrames = Math.max(1, frames);
+  }
+
+  /**
+   * Sets how many consecutive frames with work within half the budget raise the quality by one level. Defaults to 60.
+   */
+  public void setStepUpFrames(int frames) {
+    stepUpFrames = Math.max(1, frames);
+  }
+
+  /**
+   * Sets how many frames to wait between jumps at {@link #QUALITY_JUMP_THROTTLED}. Defaults to 3.
+   */
+  public void setThrottleFrames(int frames) {
+    throttleFrames = Math.max(1, frames);
+  }
+
+  public int getThrottleFrames() {
+    return throttleFrames;
+  }
+
+  public void setOnQualityChangeListener(OnFastScrollQualityChangeListener listener) {
+    this.listener = listener;
+  }
+
+  public int getQualityLevel() {
+    return level;
+  }
+
+  /**
+   * Sets the quality level, e.g. to start at a lower level on a device known to be slow.
+   */
+  public void setQualityLevel(int level) {
+    probing = false;
+    backoff = 1;
+    changeLevel(level);
+  }
+
+  private void changeLevel(int level) {
+    level = Math.max(QUALITY_FULL, Math.min(QUALITY_PREVIEW, level));
+    missedFrames = 0;
+    goodFrames = 0;
+    idleFrames = 0;
+    if (this.level == level) {
+      return;
+    }
+    this.level = level;
+    recyclerView.onQualityLevelChanged(level);
+    if (listener != null) {
+      listener.onFastScrollQualityChanged(recyclerView, level);
+    }
+  }
+
+  /**
+   * Called when the thumb starts being dragged.
+   */
+  /*package*/ void start() {
+    active = true;
+    workNanos = 0;
+    worked = false;
+    FrameClock.getInstance().start(frameCallback);
+  }
+
+  /*package*/ void stop() {
+    active = false;
+    FrameClock.getInstance().stop(frameCallback);
+  }
+
+  /**
+   * Stops waiting for frames while the list is detached, so the frame clock does not keep it reachable.
+   */
+  /*package*/ void onDetached() {
+    FrameClock.getInstance().stop(frameCallback);
+  }
+
+  /*package*/ void onAttached() {
+    if (active) {
+      FrameClock.getInstance().start(frameCallback);
+    }
+  }
+
+  /**
+   * Adds work done for the fast scroller in the current frame.
+   */
+  /*package*/ void addWork(long nanos) {
+    if (active) {
+      workNanos += nanos;
+      worked = true;
+    }
+  }
+
+  /*package*/ boolean isActive() {
+    return active;
+  }
+
+  private long onFrame() {
+    if (!active) {
+      return FrameClock.STOP;
+    }
+    long work = workNanos;
+    boolean judged = worked;
+    workNanos = 0;
+    worked = false;
+    if (!judged) {
+      // Nothing runs while dragging at the preview level, the only way to learn whether the device recovered is to try
+      if (level == QUALITY_PREVIEW && !probing && ++idleFrames >= stepUpFrames * backoff) {
+        probeUp();
+      }
+      return FrameClock.NEXT_FRAME;
+    }
+    idleFrames = 0;
+    if (work > frameBudgetNanos) {
+      if (probing) {
+        // The device has not recovered, go back right away and wait longer before the next probe
+        probing = false;
+        backoff = Math.min(MAX_BACKOFF, backoff * 2);
+        changeLevel(level + 1);
+      } else if (++missedFrames >= stepDownFrames && level < QUALITY_PREVIEW) {
+        changeLevel(level + 1);
+      } else {
+        goodFrames = 0;
+      }
+      return FrameClock.NEXT_FRAME;
+    }
+    if (probing) {
+      probing = false;
+      backoff = 1;
+    }
+    if (work < frameBudgetNanos / 2) {
+      if (++goodFrames >= stepUpFrames * backoff && level > QUALITY_FULL) {
+        probeUp();
+      }
+    } else {
+      goodFrames = 0;
+    }
+    return FrameClock.NEXT_FRAME;
+  }
+
+  private void probeUp() {
+    changeLevel(level - 1);
+    probing = true;
+  }
+
+}
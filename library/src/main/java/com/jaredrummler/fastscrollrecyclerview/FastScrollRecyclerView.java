@@ -19,18 +19,34 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.View.OnLayoutChangeListener;
+import android.view.ViewGroupOverlay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A base {@link RecyclerView}, which does the following:
@@ -42,29 +58,115 @@ import android.view.View;
  */
 public class FastScrollRecyclerView extends RecyclerView implements RecyclerView.OnItemTouchListener {
 
+  /**
+   * Jump to the touch position on every move event while the thumb is dragged (the default).
+   */
+  public static final int JUMP_MODE_IMMEDIATE = 0;
+  /**
+   * Jump to the latest touch position at most once per frame while the thumb is dragged. The thumb and popup still
+   * follow every move event.
+   */
+  public static final int JUMP_MODE_PER_FRAME = 1;
+  /**
+   * Only move the thumb and update the popup while the thumb is dragged, and jump when it is released (or at most
+   * once per {@link #setFastScrollPreviewJumpInterval(long) interval}). Use this when laying out a screen of items is
+   * too expensive to do while dragging.
+   */
+  public static final int JUMP_MODE_PREVIEW = 2;
+
+  /**
+   * Draw the fast scroller in {@link #draw(Canvas)}, after the items and item decorations (the default).
+   */
+  public static final int RENDER_MODE_DRAW = 0;
+  /**
+   * Draw the fast scroller in a view in the {@link ViewGroupOverlay} of the list. The view has its own display list,
+   * so animating the scroll bar and the popup does not record the list and its item decorations again. Requires API
+   * 18, falls back to {@link #RENDER_MODE_DRAW} on older versions.
+   */
+  public static final int RENDER_MODE_OVERLAY = 1;
+
+  /**
+   * Show a thumb which is dragged to scroll the list (the default).
+   */
+  public static final int BAR_MODE_THUMB = 0;
+  /**
+   * Show an alphabetical index of the sections, like a contact list. Tapping or sliding over a label jumps to the
+   * first item of its section. See {@link #setFastScrollIndexLabels(String[])}. The sections are taken from the
+   * {@link #setSectionIndex(SectionIndex) section index} or the {@link #setSectionCacheExecutor(Executor) section
+   * cache}, the index stays empty until one of them is ready.
+   */
+  public static final int BAR_MODE_INDEX = 1;
+
+  /**
+   * The payload the visible items are bound again with when a drag of the thumb ends, if enabled with
+   * {@link #setRebindOnFastScrollSettled(boolean)}.
+   */
+  public static final Object PAYLOAD_FAST_SCROLL_SETTLED = new Object();
+
   private static final int SCROLL_DELTA_THRESHOLD_DP = 4;
   private static final int DEFAULT_HIDE_DELAY = 1000;
+  private static final int DEFAULT_ITEM_VIEW_CACHE_SIZE = 2; // RecyclerView's default
+  private static final int DEFAULT_SECTION_PREVIEW_CACHE_BYTES = 4 * 1024 * 1024;
 
   private final ScrollPositionState scrollPositionState = new ScrollPositionState();
   private final Rect backgroundPadding = new Rect();
+  private final AdapterDataObserver dataObserver = new FastScrollDataObserver();
+  private final RowIndex rowIndex = new RowIndex();
+  private final GridSpanSizes gridSpanSizes = new GridSpanSizes();
+  private final RowHeightEstimator rowHeightEstimator = new RowHeightEstimator();
+  private final OnLayoutChangeListener childLayoutListener = new OnLayoutChangeListener() {
+
+    @Override public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop,
+        int oldRight, int oldBottom) {
+      // Items are laid out when they are bound, not while they scroll, so this samples each newly shown item once
+      LayoutManager layoutManager = getLayoutManager();
+      rowHeightEstimator.addSample(layoutManager == null ? bottom - top : layoutManager.getDecoratedMeasuredHeight(v));
+    }
+  };
   /*package*/ FastScrollBar fastScrollBar;
+  /*package*/ RowHeightIndex rowHeightIndex;
+  private final SparseIntArray viewTypeHeights = new SparseIntArray();
+  private final SparseIntArray laidOutRowHeights = new SparseIntArray(); // The tallest child of each laid out row
+  private boolean rowHeightHintsValid; // Whether the row height index was seeded with the hints of the adapter
+  private boolean rowHeightIndexAutoEnabled; // Whether the row height index was enabled for a MeasurableAdapter
+  private SectionCache sectionCache;
+  private SectionIndex sectionIndex;
+  private SectionPreviewCache sectionPreviewCache;
+  private AsyncSectionLoader asyncSectionLoader;
+  private String asyncSectionPlaceholder = "";
+  private FastScrollOverlay overlay; // Only set in RENDER_MODE_OVERLAY
+  private FastScrollPrefetcher prefetcher; // Only set if prefetching is enabled
+  private FastScrollQualityGovernor qualityGovernor; // Only set if the governor is enabled
+  private ViewCacheExtension viewCacheExtension;
+  private int itemViewCacheSize = DEFAULT_ITEM_VIEW_CACHE_SIZE;
+  private OnFastScrollMetricsListener metricsListener;
+  private final ArrayList<OnFastScrollStateChangeListener> stateChangeListeners =
+      new ArrayList<OnFastScrollStateChangeListener>();
+  private final Runnable settleRebind = new Runnable() {
+
+    @Override public void run() {
+      rebindSettledItems();
+    }
+  };
+  private boolean rebindOnSettled;
+  private boolean settleRebindPending;
+  /*package*/ FastScrollMetrics metrics; // Only set while a metrics listener is attached
   /*package*/ boolean fastScrollAlwaysEnabled;
+  /*package*/ boolean isRtl;
+  // Whether the thumb offset has to be recomputed before the next draw
+  /*package*/ boolean scrollbarDirty = true;
+  private boolean rowIndexValid;
   private float deltaThreshold;
   private int hideDelay;
+  private int jumpMode = JUMP_MODE_IMMEDIATE;
+  private long previewJumpInterval; // In JUMP_MODE_PREVIEW, 0 to only jump on release
+  private boolean snapToSection;
+  private long snapDwellTime; // 0 to only snap on release
   /*package*/ int lastDy; // Keeps the last known scrolling delta/velocity along y-axis.
   private int downX;
   private int downY;
   private int lastY;
 
-  final Runnable hide = new Runnable() {
-
-    @Override public void run() {
-      if (!fastScrollBar.isDraggingThumb()) {
-        fastScrollBar.animateScrollbar(false);
-      }
-    }
-  };
-
   public FastScrollRecyclerView(Context context) {
     this(context, null);
   }
@@ -80,6 +182,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     hideDelay = ta.getInt(R.styleable.FastScrollRecyclerView_fastScrollHideDelay, DEFAULT_HIDE_DELAY);
     ta.recycle();
     deltaThreshold = getResources().getDisplayMetrics().density * SCROLL_DELTA_THRESHOLD_DP;
+    isRtl = Utilities.isRtl(getResources());
     fastScrollBar = new FastScrollBar(this, attrs);
     fastScrollBar.setDetachThumbOnFastScroll();
     addOnScrollListener(new OnScrollListener() {
@@ -88,7 +191,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
         if (fastScrollAlwaysEnabled) return;
         switch (newState) {
           case SCROLL_STATE_DRAGGING:
-            removeCallbacks(hide);
+            fastScrollBar.cancelHide();
             fastScrollBar.animateScrollbar(true);
             break;
           case SCROLL_STATE_IDLE:
@@ -99,13 +202,50 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
 
       @Override public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
         lastDy = dy;
+        recordRowHeights();
+        scrollbarDirty = false;
         onUpdateScrollbar(dy);
       }
     });
+    addOnChildAttachStateChangeListener(new OnChildAttachStateChangeListener() {
+
+      @Override public void onChildViewAttachedToWindow(View view) {
+        view.addOnLayoutChangeListener(childLayoutListener);
+      }
+
+      @Override public void onChildViewDetachedFromWindow(View view) {
+        view.removeOnLayoutChangeListener(childLayoutListener);
+      }
+    });
   }
 
   public void reset() {
     fastScrollBar.reattachThumbToScroll();
+    invalidateScrollbar();
+  }
+
+  /**
+   * Recomputes the thumb offset before the next draw. Call this when something the thumb offset depends on changed
+   * without scrolling or laying out the list.
+   */
+  public void invalidateScrollbar() {
+    scrollbarDirty = true;
+    if (overlay != null) {
+      overlay.invalidate();
+    } else {
+      invalidate();
+    }
+  }
+
+  /**
+   * Invalidates the part of the fast scroller that changed, or only the overlay in {@link #RENDER_MODE_OVERLAY}.
+   */
+  /*package*/ void invalidateFastScroller(Rect dirty) {
+    if (overlay != null) {
+      overlay.invalidate(dirty);
+    } else {
+      invalidate(dirty);
+    }
   }
 
   @Override protected void onFinishInflate() {
@@ -113,6 +253,159 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     addOnItemTouchListener(this);
   }
 
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    if (sectionPreviewCache != null) {
+      sectionPreviewCache.registerMemoryCallbacks(getContext());
+    }
+    fastScrollBar.onAttached();
+    if (qualityGovernor != null) {
+      qualityGovernor.onAttached();
+    }
+    if (prefetcher != null) {
+      prefetcher.schedule();
+    }
+    if (settleRebindPending) {
+      post(settleRebind);
+    }
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    // The frame clock is static, nothing registered with it may outlive the window
+    fastScrollBar.onDetached();
+    if (qualityGovernor != null) {
+      qualityGovernor.onDetached();
+    }
+    if (prefetcher != null) {
+      prefetcher.onDetached();
+    }
+    removeCallbacks(settleRebind);
+    if (sectionPreviewCache != null) {
+      sectionPreviewCache.unregisterMemoryCallbacks(getContext());
+    }
+  }
+
+  @Override public void setLayoutManager(LayoutManager layout) {
+    super.setLayoutManager(layout);
+    if (rowHeightEstimator != null) { // Null when the constructor of RecyclerView sets app:layoutManager
+      rowHeightEstimator.reset();
+    }
+    rowHeightHintsValid = false;
+    rowIndexValid = false;
+    scrollbarDirty = true;
+  }
+
+  @Override public void setItemViewCacheSize(int size) {
+    itemViewCacheSize = size;
+    super.setItemViewCacheSize(size);
+  }
+
+  /**
+   * Sets the item view cache size to the size set by the app plus the given extra items.
+   */
+  /*package*/ void applyItemViewCacheSize(int extra) {
+    super.setItemViewCacheSize(itemViewCacheSize + extra);
+  }
+
+  @Override public void setViewCacheExtension(ViewCacheExtension extension) {
+    viewCacheExtension = extension;
+    if (prefetcher != null) {
+      prefetcher.delegate = extension;
+    } else {
+      super.setViewCacheExtension(extension);
+    }
+  }
+
+  @Override public void setAdapter(Adapter adapter) {
+    swapDataObserver(getAdapter(), adapter);
+    super.setAdapter(adapter);
+    fastScrollBar.updateIndexLabels();
+  }
+
+  @Override public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+    swapDataObserver(getAdapter(), adapter);
+    super.swapAdapter(adapter, removeAndRecycleExistingViews);
+    fastScrollBar.updateIndexLabels();
+  }
+
+  private void swapDataObserver(Adapter oldAdapter, Adapter newAdapter) {
+    if (oldAdapter != null) {
+      oldAdapter.unregisterAdapterDataObserver(dataObserver);
+    }
+    if (newAdapter != null) {
+      newAdapter.registerAdapterDataObserver(dataObserver);
+    }
+    if (rowHeightIndexAutoEnabled && !(newAdapter instanceof MeasurableAdapter)) {
+      rowHeightIndex = null;
+      rowHeightIndexAutoEnabled = false;
+    }
+    if (newAdapter instanceof MeasurableAdapter && rowHeightIndex == null) {
+      rowHeightIndex = new RowHeightIndex();
+      rowHeightIndexAutoEnabled = true;
+    }
+    if (rowHeightIndex != null) {
+      rowHeightIndex.setRowCount(0);
+    }
+    rowHeightHintsValid = false;
+    if (sectionCache != null) {
+      sectionCache.setAdapter(newAdapter);
+    }
+    if (asyncSectionLoader != null) {
+      asyncSectionLoader.cancel();
+    }
+    if (sectionPreviewCache != null) {
+      sectionPreviewCache.clear();
+    }
+    asyncSectionLoader = newAdapter instanceof AsyncSectionedAdapter ?
+        new AsyncSectionLoader(this, (AsyncSectionedAdapter) newAdapter) : null;
+    rowHeightEstimator.reset();
+    rowIndexValid = false;
+    scrollbarDirty = true;
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    if (qualityGovernor != null && qualityGovernor.isActive()) {
+      long start = System.nanoTime();
+      super.onLayout(changed, l, t, r, b);
+      qualityGovernor.addWork(System.nanoTime() - start);
+    } else {
+      super.onLayout(changed, l, t, r, b);
+    }
+    if (settleRebindPending) {
+      post(settleRebind); // The list has been laid out at the position the thumb was released at
+    }
+    recordRowHeights();
+    scrollbarDirty = true;
+    if (metrics != null && metrics.recording) {
+      metrics.layoutPasses++;
+    }
+  }
+
+  @Override protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    scrollbarDirty = true;
+    if (overlay != null) {
+      overlay.layout(0, 0, w, h); // Views in an overlay are not laid out by their host
+    }
+  }
+
+  @Override public void setPadding(int left, int top, int right, int bottom) {
+    super.setPadding(left, top, right, bottom);
+    scrollbarDirty = true;
+  }
+
+  @Override public void setPaddingRelative(int start, int top, int end, int bottom) {
+    super.setPaddingRelative(start, top, end, bottom);
+    scrollbarDirty = true;
+  }
+
+  @Override protected void onConfigurationChanged(Configuration newConfig) {
+    super.onConfigurationChanged(newConfig);
+    isRtl = Utilities.isRtl(getResources());
+    scrollbarDirty = true;
+  }
+
   /**
    * We intercept the touch handling only to support fast scrolling when initiated from the
    * scroll bar.  Otherwise, we fall back to the default RecyclerView touch handling.
@@ -176,6 +469,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
 
   public void updateBackgroundPadding(Rect padding) {
     backgroundPadding.set(padding);
+    invalidateScrollbar();
   }
 
   public Rect getBackgroundPadding() {
@@ -186,18 +480,57 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
    * Returns the scroll bar width when the user is scrolling.
    */
   public int getMaxScrollbarWidth() {
-    return fastScrollBar.getThumbMaxWidth();
+    return fastScrollBar.isIndexMode() ? fastScrollBar.getIndexBarWidth() : fastScrollBar.getThumbMaxWidth();
+  }
+
+  /**
+   * Sets whether a thumb or an alphabetical index of the sections is shown.
+   *
+   * @param barMode
+   *     {@link #BAR_MODE_THUMB} or {@link #BAR_MODE_INDEX}
+   */
+  public void setFastScrollBarMode(int barMode) {
+    fastScrollBar.setIndexMode(barMode == BAR_MODE_INDEX);
+    invalidateScrollbar();
+  }
+
+  public int getFastScrollBarMode() {
+    return fastScrollBar.isIndexMode() ? BAR_MODE_INDEX : BAR_MODE_THUMB;
+  }
+
+  /**
+   * Sets the labels shown in {@link #BAR_MODE_INDEX}, e.g. "#" and A to Z. Each label jumps to the first section
+   * whose label does not sort before it, ignoring case, or to the last item if there is none. Letters without items
+   * are still shown.
+   *
+   * @param labels
+   *     the sorted labels, or {@code null} to show the labels of the sections (the default)
+   */
+  public void setFastScrollIndexLabels(String[] labels) {
+    fastScrollBar.setIndexLabels(labels);
+    invalidateScrollbar();
   }
 
   /**
    * Returns the available scroll height:
    * AvailableScrollHeight = Total height of the all items - last page height
    *
-   * This assumes that all rows are the same height.
+   * This assumes that all rows are the same height, unless the row height index is enabled. The height is clamped to
+   * the int range, see {@link #getAvailableScrollHeightLong(int, int)}.
    */
   protected int getAvailableScrollHeight(int rowCount, int rowHeight) {
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE,
+        getAvailableScrollHeightLong(rowCount, rowHeight)));
+  }
+
+  /**
+   * Returns the available scroll height like {@link #getAvailableScrollHeight(int, int)}, without overflowing for
+   * lists taller than 2^31 pixels.
+   */
+  protected long getAvailableScrollHeightLong(int rowCount, int rowHeight) {
     int visibleHeight = getHeight() - backgroundPadding.top - backgroundPadding.bottom;
-    int scrollHeight = getPaddingTop() + rowCount * rowHeight + getPaddingBottom();
+    long contentHeight = rowHeightIndex != null ? rowHeightIndex.getTotalHeight() : (long) rowCount * rowHeight;
+    long scrollHeight = getPaddingTop() + contentHeight + getPaddingBottom();
     return scrollHeight - visibleHeight;
   }
 
@@ -214,10 +547,184 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     return fastScrollAlwaysEnabled;
   }
 
+  /**
+   * Sets how the list follows the thumb while it is dragged.
+   *
+   * @param jumpMode
+   *     {@link #JUMP_MODE_IMMEDIATE}, {@link #JUMP_MODE_PER_FRAME} or {@link #JUMP_MODE_PREVIEW}
+   */
+  public void setFastScrollJumpMode(int jumpMode) {
+    this.jumpMode = jumpMode;
+  }
+
+  /**
+   * Sets how often the list jumps to the thumb while it is dragged in {@link #JUMP_MODE_PREVIEW}.
+   *
+   * @param intervalMillis
+   *     the minimum time between jumps, or 0 to only jump when the thumb is released (the default)
+   */
+  public void setFastScrollPreviewJumpInterval(long intervalMillis) {
+    previewJumpInterval = Math.max(0, intervalMillis);
+  }
+
+  public int getFastScrollJumpMode() {
+    return jumpMode;
+  }
+
+  /**
+   * Aligns the list to the first item of the section under the thumb when the thumb is released, instead of to the
+   * exact position of the thumb.
+   *
+   * <p>Section starts are taken from the {@link #setSectionIndex(SectionIndex) section index}, or from the
+   * {@link #setSectionCacheExecutor(Executor) section cache} once it is ready. Nothing is snapped without either of
+   * them, the adapter is never asked for every item on the UI thread.</p>
+   */
+  public void setSnapToSectionEnabled(boolean enabled) {
+    snapToSection = enabled;
+  }
+
+  public boolean isSnapToSectionEnabled() {
+    return snapToSection;
+  }
+
+  /**
+   * Also snaps to the section while dragging, once the thumb rested for the given time.
+   *
+   * @param dwellMillis
+   *     the time the thumb must rest, or 0 to only snap when the thumb is released (the default)
+   */
+  public void setSnapToSectionDwellTime(long dwellMillis) {
+    snapDwellTime = Math.max(0, dwellMillis);
+  }
+
+  /*package*/ long getSnapToSectionDwellTime() {
+    return snapToSection ? snapDwellTime : 0;
+  }
+
+  /**
+   * Returns the jump mode in effect, which the quality governor may have lowered from the one that was set.
+   */
+  /*package*/ int getEffectiveJumpMode() {
+    int level = qualityGovernor == null ? FastScrollQualityGovernor.QUALITY_FULL : qualityGovernor.getQualityLevel();
+    switch (level) {
+      case FastScrollQualityGovernor.QUALITY_JUMP_PER_FRAME:
+        return jumpMode == JUMP_MODE_IMMEDIATE ? JUMP_MODE_PER_FRAME : jumpMode;
+      case FastScrollQualityGovernor.QUALITY_JUMP_THROTTLED:
+      case FastScrollQualityGovernor.QUALITY_PREVIEW:
+        return JUMP_MODE_PREVIEW;
+      default:
+        return jumpMode;
+    }
+  }
+
+  /**
+   * Returns the preview jump interval in effect, in milliseconds.
+   */
+  /*package*/ long getEffectivePreviewJumpInterval() {
+    if (qualityGovernor != null &&
+        qualityGovernor.getQualityLevel() == FastScrollQualityGovernor.QUALITY_JUMP_THROTTLED) {
+      long frameIntervalMillis = TimeUnit.NANOSECONDS.toMillis(Utilities.getFrameIntervalNanos(this));
+      return Math.max(1, qualityGovernor.getThrottleFrames() * frameIntervalMillis);
+    }
+    return previewJumpInterval;
+  }
+
+  /**
+   * Lowers the quality of the fast scroller while dragging when jumping and laying out the list do not fit in the
+   * frame budget, and raises it again when frames recover. See {@link FastScrollQualityGovernor} for the levels and
+   * thresholds.
+   */
+  public void setFastScrollQualityGovernorEnabled(boolean enabled) {
+    if (enabled == (qualityGovernor != null)) {
+      return;
+    }
+    if (enabled) {
+      qualityGovernor = new FastScrollQualityGovernor(this);
+    } else {
+      qualityGovernor.stop();
+      qualityGovernor = null;
+      onQualityLevelChanged(FastScrollQualityGovernor.QUALITY_FULL);
+    }
+  }
+
+  /**
+   * Returns the quality governor to configure its thresholds, or {@code null} if it is not enabled.
+   */
+  public FastScrollQualityGovernor getFastScrollQualityGovernor() {
+    return qualityGovernor;
+  }
+
+  /*package*/ void onQualityLevelChanged(int level) {
+    fastScrollBar.setReducedQuality(level >= FastScrollQualityGovernor.QUALITY_JUMP_THROTTLED);
+  }
+
+  /**
+   * Sets how the fast scroller is drawn.
+   *
+   * @param renderMode
+   *     {@link #RENDER_MODE_DRAW} or {@link #RENDER_MODE_OVERLAY}
+   */
+  public void setFastScrollRenderMode(int renderMode) {
+    boolean useOverlay =
+        renderMode == RENDER_MODE_OVERLAY && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    if (useOverlay == (overlay != null)) {
+      return;
+    }
+    if (useOverlay) {
+      overlay = new FastScrollOverlay(this);
+      overlay.layout(0, 0, getWidth(), getHeight());
+      addOverlay(overlay);
+    } else {
+      removeOverlay(overlay);
+      overlay = null;
+    }
+    invalidate();
+  }
+
+  public int getFastScrollRenderMode() {
+    return overlay != null ? RENDER_MODE_OVERLAY : RENDER_MODE_DRAW;
+  }
+
+  /**
+   * Prefetches the items around the position the thumb is heading to while it is dragged, so jumping there does not
+   * create and bind a whole screen of items in one frame. Use this for lists with expensive items, e.g. images.
+   *
+   * <p>While the thumb is dragged, the item view cache is enlarged to hold the prefetched items. It is restored to the
+   * size set with {@link #setItemViewCacheSize(int)} after the drag. The {@link RecycledViewPool} limits are not
+   * changed.</p>
+   */
+  public void setFastScrollPrefetchEnabled(boolean enabled) {
+    if (enabled == (prefetcher != null)) {
+      return;
+    }
+    if (enabled) {
+      prefetcher = new FastScrollPrefetcher(this);
+      prefetcher.delegate = viewCacheExtension;
+      super.setViewCacheExtension(prefetcher);
+    } else {
+      prefetcher.stop();
+      prefetcher = null;
+      super.setViewCacheExtension(viewCacheExtension);
+    }
+  }
+
+  public boolean isFastScrollPrefetchEnabled() {
+    return prefetcher != null;
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private void addOverlay(FastScrollOverlay overlay) {
+    ((ViewGroupOverlay) getOverlay()).add(overlay);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+  private void removeOverlay(FastScrollOverlay overlay) {
+    ((ViewGroupOverlay) getOverlay()).remove(overlay);
+  }
+
   protected void hideScrollBar() {
     if (!fastScrollAlwaysEnabled) {
-      removeCallbacks(hide);
-      postDelayed(hide, hideDelay);
+      fastScrollBar.scheduleHide(hideDelay);
     }
   }
 
@@ -237,19 +744,529 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     fastScrollBar.setPopupTextColor(color);
   }
 
+  /**
+   * Prerenders a small, known set of section names (e.g. A-Z) so the popup does not measure or lay out text while
+   * dragging.
+   *
+   * @see FastScrollPopup#setPrerenderedSectionNames(String[])
+   */
+  public void setPopupPrerenderedSectionNames(String... sectionNames) {
+    fastScrollBar.setPopupPrerenderedSectionNames(sectionNames);
+  }
+
   public FastScrollBar getFastScrollBar() {
     return fastScrollBar;
   }
 
+  /**
+   * Enables an index of the measured height of each row. Use this when rows have very different heights, so the
+   * thumb position and the position jumped to by the fast scroller account for the real height of each row instead
+   * of assuming all rows are as tall as the visible ones. The index is enabled automatically for a
+   * {@link MeasurableAdapter}.
+   */
+  public void setRowHeightIndexEnabled(boolean enabled) {
+    if (enabled == (rowHeightIndex != null)) {
+      return;
+    }
+    rowHeightIndex = enabled ? new RowHeightIndex() : null;
+    rowHeightHintsValid = false;
+    rowHeightIndexAutoEnabled = false;
+    if (enabled) {
+      recordRowHeights();
+    }
+    invalidateScrollbar();
+  }
+
+  public boolean isRowHeightIndexEnabled() {
+    return rowHeightIndex != null;
+  }
+
+  /**
+   * Returns the row height index, or {@code null} if it is not enabled.
+   */
+  public RowHeightIndex getRowHeightIndex() {
+    return rowHeightIndex;
+  }
+
+  /**
+   * Records the measured height of every row that is currently laid out in the row height index.
+   */
+  private void recordRowHeights() {
+    if (rowHeightIndex == null || getAdapter() == null || getLayoutManager() == null) {
+      return;
+    }
+    RowIndex rows = getRowIndex();
+    if (!rowHeightHintsValid && getAdapter() instanceof MeasurableAdapter) {
+      seedRowHeights(rows);
+    }
+    rowHeightHintsValid = true;
+    rowHeightIndex.setRowCount(rows.getRowCount());
+    // The cells of a grid row can have different heights, the row is as tall as its tallest cell
+    LayoutManager layoutManager = getLayoutManager();
+    laidOutRowHeights.clear();
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      View child = getChildAt(i);
+      int position = getChildLayoutPosition(child);
+      if (position != NO_POSITION && position < rows.getItemCount()) {
+        int row = rows.getRowForPosition(position);
+        int height = layoutManager.getDecoratedMeasuredHeight(child);
+        laidOutRowHeights.put(row, Math.max(height, laidOutRowHeights.get(row)));
+      }
+    }
+    for (int i = 0, count = laidOutRowHeights.size(); i < count; i++) {
+      rowHeightIndex.setRowHeight(laidOutRowHeights.keyAt(i), laidOutRowHeights.valueAt(i));
+    }
+  }
+
+  /**
+   * Replaces the heights in the row height index with the hints of the {@link MeasurableAdapter}. The height of a
+   * row is the tallest hint of its items. The adapter is asked once for each view type.
+   *
+   * <p>This costs one {@link Adapter#getItemViewType(int)} call per item, so it is only done once per adapter and
+   * layout manager. Changes that clear the index later fall back to the average hinted height until rows are
+   * measured again.</p>
+   */
+  private void seedRowHeights(RowIndex rows) {
+    viewTypeHeights.clear();
+    int[] heights = new int[rows.getRowCount()];
+    long hintedHeight = 0;
+    int hintedRows = 0;
+    int position = 0;
+    for (int row = 0; row < heights.length; row++) {
+      int end = row + 1 < heights.length ? rows.getFirstPositionForRow(row + 1) : rows.getItemCount();
+      int height = 0;
+      for (; position < end; position++) {
+        height = Math.max(height, getHeightHint(position));
+      }
+      heights[row] = height > 0 ? height : RowHeightIndex.UNKNOWN;
+      if (height > 0) {
+        hintedHeight += height;
+        hintedRows++;
+      }
+    }
+    rowHeightIndex.setRowHeights(heights);
+    if (hintedRows > 0) {
+      rowHeightIndex.setDefaultRowHeight((int) (hintedHeight / hintedRows));
+    }
+  }
+
+  /**
+   * Sets the hinted heights of inserted rows, when each row holds a single item.
+   */
+  private void seedInsertedRowHeights(int positionStart, int itemCount) {
+    for (int position = positionStart; position < positionStart + itemCount; position++) {
+      int height = getHeightHint(position);
+      if (height > 0) {
+        rowHeightIndex.setRowHeight(position, height);
+      }
+    }
+  }
+
+  private int getHeightHint(int position) {
+    int viewType = getAdapter().getItemViewType(position);
+    int index = viewTypeHeights.indexOfKey(viewType);
+    if (index >= 0) {
+      return viewTypeHeights.valueAt(index);
+    }
+    int height = ((MeasurableAdapter) getAdapter()).getViewTypeHeight(this, viewType);
+    viewTypeHeights.put(viewType, height);
+    return height;
+  }
+
+  /**
+   * Builds a cache of the section name of every position on the given executor, so that
+   * {@link SectionedAdapter#getSectionName(int)} is not called while dragging the thumb. The cache follows the
+   * adapter's range events and is only rebuilt after {@code notifyDataSetChanged()} or when the adapter is replaced.
+   * Until it is ready, the adapter is asked directly. The cache stores runs of equal section
+   * names, so its size grows with the number of sections, see {@link FastScrollMetrics#sectionCacheBytes}.
+   *
+   * <p>The adapter's {@link SectionedAdapter#getSectionName(int)} must be safe to call from the executor's thread.</p>
+   *
+   * @param executor
+   *     the executor to build the cache on, or {@code null} to disable the cache.
+   */
+  public void setSectionCacheExecutor(Executor executor) {
+    sectionCache = executor == null ? null : new SectionCache(this, executor);
+    if (sectionCache != null) {
+      sectionCache.setAdapter(getAdapter());
+    }
+  }
+
+  private void invalidateSectionCache() {
+    if (sectionCache != null) {
+      sectionCache.invalidate(getAdapter().getItemCount());
+    }
+    invalidateAsyncSections();
+  }
+
+  /**
+   * Called by the section cache when it built new runs, the index shows their sections.
+   */
+  /*package*/ void onSectionCacheReady() {
+    fastScrollBar.updateIndexLabels();
+  }
+
+  private void invalidateAsyncSections() {
+    if (asyncSectionLoader != null) {
+      asyncSectionLoader.invalidate();
+    }
+  }
+
+  /**
+   * Sets the label shown in the popup while the first section name of a drag is loaded by an
+   * {@link AsyncSectionedAdapter}. An empty label hides the popup until the section name is loaded.
+   */
+  public void setAsyncSectionPlaceholder(@NonNull String placeholder) {
+    asyncSectionPlaceholder = placeholder;
+  }
+
+  /**
+   * Resolves section names from the given index instead of asking the adapter. Use this for sorted data where the
+   * number of items in each section is known, e.g. from a {@code GROUP BY} query. Set a new index when the data
+   * changes.
+   *
+   * @param sectionIndex
+   *     the index, or {@code null} to ask the adapter again.
+   */
+  public void setSectionIndex(SectionIndex sectionIndex) {
+    this.sectionIndex = sectionIndex;
+    fastScrollBar.updateIndexLabels();
+  }
+
+  public SectionIndex getSectionIndex() {
+    return sectionIndex;
+  }
+
+  /**
+   * Shows a preview image of the section next to the popup, e.g. a thumbnail of its first photo. Previews are loaded
+   * on the executor and kept in a cache of at most 4MB, see
+   * {@link #setSectionPreviewProvider(SectionPreviewProvider, Executor, int)}.
+   */
+  public void setSectionPreviewProvider(SectionPreviewProvider provider, Executor executor) {
+    setSectionPreviewProvider(provider, executor, DEFAULT_SECTION_PREVIEW_CACHE_BYTES);
+  }
+
+  /**
+   * Shows a preview image of the section next to the popup, e.g. a thumbnail of its first photo.
+   *
+   * <p>Previews are loaded on the executor and kept in a cache that is trimmed when the system is low on memory. The
+   * popup shows the preview once it is loaded, a drag never waits for it.</p>
+   *
+   * @param provider
+   *     the provider, or {@code null} to stop showing previews
+   * @param executor
+   *     the executor to load the previews on
+   * @param maxCacheBytes
+   *     the maximum size of the cached previews
+   */
+  public void setSectionPreviewProvider(SectionPreviewProvider provider, Executor executor, int maxCacheBytes) {
+    if (sectionPreviewCache != null) {
+      sectionPreviewCache.clear();
+      sectionPreviewCache.unregisterMemoryCallbacks(getContext());
+    }
+    sectionPreviewCache = provider == null ? null : new SectionPreviewCache(this, provider, executor, maxCacheBytes,
+        getResources().getDimensionPixelSize(R.dimen.fastscroll_popup_preview_size));
+    if (sectionPreviewCache != null && getWindowToken() != null) {
+      sectionPreviewCache.registerMemoryCallbacks(getContext());
+    }
+  }
+
+  /**
+   * Returns the cached preview for the section at the touch (from 0..1), or {@code null} while it is loading.
+   */
+  /*package*/ Bitmap getSectionPreview(float touchFraction, String sectionName) {
+    if (sectionPreviewCache == null || sectionName.isEmpty() || getAdapter() == null) {
+      return null;
+    }
+    int position = ScrollMath.getPositionAtProgress(getAdapter().getItemCount(), touchFraction);
+    return sectionPreviewCache.getPreview(sectionName, position);
+  }
+
+  /**
+   * Scrolls the first item of the section at the touch (from 0..1) to the top of the list.
+   *
+   * @return {@code false} if there are no sections to snap to, or they are not ready yet
+   */
+  /*package*/ boolean snapToSectionAtProgress(float touchFraction) {
+    SectionIndex index = getResolvedSectionIndex();
+    if (index == null || index.getSectionCount() == 0) {
+      return false;
+    }
+    int position = ScrollMath.getPositionAtProgress(getAdapter().getItemCount(), touchFraction);
+    int sectionStart = index.getPositionForSection(index.getSectionForPosition(position));
+    stopScroll();
+    scrollToPositionWithOffset(Math.min(sectionStart, getAdapter().getItemCount() - 1), 0);
+    return true;
+  }
+
+  /**
+   * Returns the section index to snap and jump to: the one that was set, or the sections of the section cache. Returns
+   * {@code null} while the section cache is built.
+   */
+  /*package*/ SectionIndex getResolvedSectionIndex() {
+    if (sectionIndex != null) {
+      return sectionIndex;
+    }
+    return sectionCache != null ? sectionCache.getSectionIndex() : null;
+  }
+
+  /**
+   * Returns the section name for the position, from the section index or the section cache if they are available.
+   */
+  /*package*/ String getSectionName(int position) {
+    if (sectionIndex != null) {
+      return sectionIndex.getSectionName(position);
+    }
+    if (sectionCache != null) {
+      String sectionName = sectionCache.getSectionName(position);
+      if (sectionName != null) {
+        return sectionName;
+      }
+    }
+    if (metrics != null && metrics.recording) {
+      long start = System.nanoTime();
+      String sectionName = ((SectionedAdapter) getAdapter()).getSectionName(position);
+      metrics.sectionNameNanos += System.nanoTime() - start;
+      return sectionName;
+    }
+    return ((SectionedAdapter) getAdapter()).getSectionName(position);
+  }
+
+  /**
+   * Reports counters for each drag of the thumb to the listener, once the drag ends. Nothing is measured while no
+   * listener is set.
+   *
+   * @param listener
+   *     the listener, or {@code null} to stop collecting metrics.
+   */
+  public void setOnFastScrollMetricsListener(OnFastScrollMetricsListener listener) {
+    metricsListener = listener;
+    metrics = listener == null ? null : new FastScrollMetrics();
+  }
+
+  /**
+   * Adds a listener that is told when the user starts and stops dragging the thumb, e.g. to pause image loading.
+   */
+  public void addOnFastScrollStateChangeListener(OnFastScrollStateChangeListener listener) {
+    stateChangeListeners.add(listener);
+  }
+
+  public void removeOnFastScrollStateChangeListener(OnFastScrollStateChangeListener listener) {
+    stateChangeListeners.remove(listener);
+  }
+
+  /**
+   * Returns whether the user is dragging the thumb. Cheap enough to check in
+   * {@link Adapter#onBindViewHolder(ViewHolder, int)}, to defer expensive work for items that are only shown for a
+   * frame.
+   */
+  public boolean isFastScrolling() {
+    return fastScrollBar.isDraggingThumb();
+  }
+
+  /**
+   * Binds the visible items again with {@link #PAYLOAD_FAST_SCROLL_SETTLED} when a drag of the thumb ends, so an
+   * adapter that deferred work while {@link #isFastScrolling()} can bind the full content. Only the view holders of
+   * this list are bound, no change is notified to the observers of the adapter.
+   */
+  public void setRebindOnFastScrollSettled(boolean rebind) {
+    rebindOnSettled = rebind;
+  }
+
+  /*package*/ void onThumbDragStarted() {
+    if (prefetcher != null) {
+      prefetcher.start();
+    }
+    if (qualityGovernor != null) {
+      qualityGovernor.start();
+    }
+    settleRebindPending = false;
+    float velocity = fastScrollBar.getThumbVelocity();
+    for (int i = stateChangeListeners.size() - 1; i >= 0; i--) {
+      stateChangeListeners.get(i).onFastScrollStarted(this, velocity);
+    }
+    if (metrics != null) {
+      metrics.start(SystemClock.uptimeMillis());
+    }
+  }
+
+  /**
+   * Called for every move of the dragged thumb, before the list jumps to the touch fraction.
+   */
+  /*package*/ void onThumbMoved(float touchFraction) {
+    if (prefetcher != null) {
+      prefetcher.onThumbMoved(touchFraction, SystemClock.uptimeMillis());
+    }
+  }
+
+  /*package*/ void onThumbDragEnded() {
+    if (prefetcher != null) {
+      prefetcher.stop();
+    }
+    if (qualityGovernor != null) {
+      qualityGovernor.stop();
+    }
+    if (asyncSectionLoader != null) {
+      asyncSectionLoader.cancel();
+    }
+    if (metrics != null && metrics.recording) {
+      metrics.finish(SystemClock.uptimeMillis());
+      // Report the runs that served the lookups of the drag
+      metrics.sectionCacheBytes = sectionCache != null ? sectionCache.getMemoryFootprint() : 0;
+      metricsListener.onFastScrollMetrics(metrics);
+    }
+    float velocity = fastScrollBar.getThumbVelocity();
+    for (int i = stateChangeListeners.size() - 1; i >= 0; i--) {
+      stateChangeListeners.get(i).onFastScrollStopped(this, velocity);
+    }
+    if (rebindOnSettled) {
+      settleRebindPending = true;
+      if (!isLayoutRequested()) {
+        post(settleRebind);
+      }
+    }
+  }
+
+  private void rebindSettledItems() {
+    if (!settleRebindPending || isFastScrolling() || getAdapter() == null) {
+      return;
+    }
+    settleRebindPending = false;
+    List<Object> payloads = Collections.singletonList(PAYLOAD_FAST_SCROLL_SETTLED);
+    Adapter adapter = getAdapter();
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      ViewHolder holder = getChildViewHolder(getChildAt(i));
+      int position = holder.getAdapterPosition();
+      if (position != NO_POSITION) {
+        adapter.onBindViewHolder(holder, position, payloads);
+      }
+    }
+  }
+
+  /**
+   * Calls {@link #scrollToPositionAtProgress(float)} for the thumb being dragged, measuring it if metrics are
+   * collected.
+   */
+  /*package*/ String jumpToProgress(float touchFraction) {
+    boolean recording = metrics != null && metrics.recording;
+    if (recording || (qualityGovernor != null && qualityGovernor.isActive())) {
+      long start = System.nanoTime();
+      String sectionName = scrollToPositionAtProgress(touchFraction);
+      long nanos = System.nanoTime() - start;
+      if (recording) {
+        metrics.scrollToPositionNanos += nanos;
+        metrics.jumps++;
+      }
+      if (qualityGovernor != null) {
+        qualityGovernor.addWork(nanos);
+      }
+      return sectionName;
+    }
+    return scrollToPositionAtProgress(touchFraction);
+  }
+
+  private int getSpanCount() {
+    if (getLayoutManager() instanceof GridLayoutManager) {
+      return ((GridLayoutManager) getLayoutManager()).getSpanCount();
+    }
+    if (getLayoutManager() instanceof StaggeredGridLayoutManager) {
+      return ((StaggeredGridLayoutManager) getLayoutManager()).getSpanCount();
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the mapping between adapter positions and rows, rebuilding it if the adapter, the span count or the
+   * {@link GridLayoutManager.SpanSizeLookup} changed.
+   *
+   * <p>Items of a {@link StaggeredGridLayoutManager} are estimated to fill the spans in order.</p>
+   */
+  /*package*/ RowIndex getRowIndex() {
+    int itemCount = getAdapter() == null ? 0 : getAdapter().getItemCount();
+    int spanCount = getSpanCount();
+    GridLayoutManager.SpanSizeLookup lookup = null;
+    if (getLayoutManager() instanceof GridLayoutManager) {
+      lookup = ((GridLayoutManager) getLayoutManager()).getSpanSizeLookup();
+      if (lookup instanceof GridLayoutManager.DefaultSpanSizeLookup) {
+        lookup = null;
+      }
+    }
+    if (!rowIndexValid || itemCount != rowIndex.getItemCount() || spanCount != gridSpanSizes.spanCount ||
+        lookup != gridSpanSizes.lookup) {
+      gridSpanSizes.lookup = lookup;
+      gridSpanSizes.spanCount = spanCount;
+      if (lookup == null) {
+        rowIndex.setUniform(itemCount, spanCount);
+      } else {
+        rowIndex.build(itemCount, spanCount, gridSpanSizes);
+      }
+      rowIndexValid = true;
+    }
+    return rowIndex;
+  }
+
+  /**
+   * Updates the rows of a grid with span sizes after the items from {@code positionStart} to
+   * {@code positionStart + removed} were replaced by {@code inserted} items, or lets {@link #getRowIndex()} build the
+   * index again.
+   */
+  private void updateRowIndex(int positionStart, int removed, int inserted) {
+    if (!rowIndexValid || gridSpanSizes.lookup == null ||
+        !rowIndex.update(positionStart, removed, inserted, gridSpanSizes)) {
+      rowIndexValid = false;
+    }
+  }
+
+  /**
+   * Scrolls the first item of the row to the top of the list, offset by the given pixels.
+   */
+  private void scrollToRowWithOffset(int row, int offset) {
+    scrollToPositionWithOffset(getRowIndex().getFirstPositionForRow(row), offset);
+  }
+
+  /**
+   * Scrolls the item to the top of the list, offset by the given pixels.
+   */
+  /*package*/ void scrollToPositionWithOffset(int position, int offset) {
+    LayoutManager layoutManager = getLayoutManager();
+    if (layoutManager instanceof LinearLayoutManager) {
+      ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+    } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+      ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+    } else {
+      layoutManager.scrollToPosition(position);
+    }
+  }
+
   @Override
   public void draw(Canvas canvas) {
+    if (prefetcher != null) {
+      prefetcher.schedule(); // Continue prefetching once this frame is done
+    }
+    if (overlay != null) {
+      // A scroll moves the thumb, which only invalidates the overlay view. It is drawn after the items.
+      updateScrollbarIfDirty();
+      super.draw(canvas);
+      return;
+    }
+
     super.draw(canvas);
 
-    // Draw the ScrollBar AFTER the ItemDecorations are drawn over
-    onUpdateScrollbar(0);
+    // Draw the ScrollBar AFTER the ItemDecorations are drawn over.
+    updateScrollbarIfDirty();
     fastScrollBar.draw(canvas);
   }
 
+  /**
+   * Recomputes the thumb offset if the list was laid out or changed size since the last frame.
+   */
+  /*package*/ void updateScrollbarIfDirty() {
+    if (scrollbarDirty) {
+      scrollbarDirty = false;
+      onUpdateScrollbar(0);
+    }
+  }
+
   /**
    * Updates the scrollbar thumb offset to match the visible scroll of the recycler view.  It does
    * this by mapping the available scroll area of the recycler view to the available space for the
@@ -264,7 +1281,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
   protected void synchronizeScrollBarThumbOffsetToViewScroll(ScrollPositionState scrollPosState, int rowCount) {
     // Only show the scrollbar if there is height to be scrolled
     int availableScrollBarHeight = getAvailableScrollBarHeight();
-    int availableScrollHeight = getAvailableScrollHeight(rowCount, scrollPosState.rowHeight);
+    long availableScrollHeight = getAvailableScrollHeightLong(rowCount, scrollPosState.rowHeight);
     if (availableScrollHeight <= 0) {
       fastScrollBar.setThumbOffset(-1, -1);
       return;
@@ -273,14 +1290,25 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     // Calculate the current scroll position, the scrollY of the recycler view accounts for the
     // view padding, while the scrollBarY is drawn right up to the background padding (ignoring
     // padding)
-    int scrollY = getPaddingTop() +
-        Math.round(((scrollPosState.rowIndex - scrollPosState.rowTopOffset) * scrollPosState.rowHeight));
+    long scrollY;
+    if (rowHeightIndex != null) {
+      int rowHeight = rowHeightIndex.getRowHeight(scrollPosState.rowIndex);
+      scrollY = getPaddingTop() + rowHeightIndex.getRowOffset(scrollPosState.rowIndex) -
+          Math.round(scrollPosState.rowTopOffset * rowHeight);
+    } else {
+      scrollY = getPaddingTop() +
+          ScrollMath.getScrollY(scrollPosState.rowIndex, scrollPosState.rowTopOffset, scrollPosState.rowHeight);
+    }
     int scrollBarY =
-        backgroundPadding.top + (int) (((float) scrollY / availableScrollHeight) * availableScrollBarHeight);
+        backgroundPadding.top + ScrollMath.getThumbOffset(scrollY, availableScrollHeight, availableScrollBarHeight);
+    if (fastScrollBar.isDraggingThumb() && getEffectiveJumpMode() != JUMP_MODE_IMMEDIATE) {
+      // The list may lag behind the finger by a frame, keep the thumb under the finger
+      scrollBarY = (int) fastScrollBar.getLastTouchY();
+    }
 
     // Calculate the position and size of the scroll bar
     int scrollBarX;
-    if (Utilities.isRtl(getResources())) {
+    if (isRtl) {
       scrollBarX = backgroundPadding.left;
     } else {
       scrollBarX = getWidth() - backgroundPadding.right - fastScrollBar.getThumbWidth();
@@ -298,40 +1326,52 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     if (itemCount == 0) {
       return "";
     }
-    int spanCount = 1;
-    int rowCount = itemCount;
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      spanCount = ((GridLayoutManager) getLayoutManager()).getSpanCount();
-      rowCount = (int) Math.ceil((double) rowCount / spanCount);
-    }
+    int rowCount = getRowIndex().getRowCount();
 
     // Stop the scroller if it is scrolling
     stopScroll();
 
     getCurScrollState(scrollPositionState);
+    if (scrollPositionState.rowHeight <= 0 && rowHeightIndex == null) {
+      return getSectionNameAtProgress(touchFraction); // Nothing is laid out yet
+    }
 
-    float itemPos = itemCount * touchFraction;
-
-    int availableScrollHeight = getAvailableScrollHeight(rowCount, scrollPositionState.rowHeight);
+    long availableScrollHeight = Math.max(0, getAvailableScrollHeightLong(rowCount, scrollPositionState.rowHeight));
 
     //The exact position of our desired item
-    int exactItemPos = (int) (availableScrollHeight * touchFraction);
+    long exactItemPos = ScrollMath.getScrollOffsetAtProgress(availableScrollHeight, touchFraction);
 
     //Scroll to the desired item. The offset used here is kind of hard to explain.
     //If the position we wish to scroll to is, say, position 10.5, we scroll to position 10,
     //and then offset by 0.5 * rowHeight. This is how we achieve smooth scrolling.
-    LinearLayoutManager layoutManager = ((LinearLayoutManager) getLayoutManager());
-    layoutManager.scrollToPositionWithOffset(spanCount * exactItemPos / scrollPositionState.rowHeight,
-        -(exactItemPos % scrollPositionState.rowHeight));
+    if (rowHeightIndex != null) {
+      int row = rowHeightIndex.getRowAtOffset(exactItemPos);
+      scrollToRowWithOffset(row, -(int) (exactItemPos - rowHeightIndex.getRowOffset(row)));
+    } else {
+      scrollToRowWithOffset(ScrollMath.getRowAtScrollOffset(exactItemPos, scrollPositionState.rowHeight),
+          -ScrollMath.getOffsetInRow(exactItemPos, scrollPositionState.rowHeight));
+    }
+
+    return getSectionNameAtProgress(touchFraction);
+  }
 
-    if (!(getAdapter() instanceof SectionedAdapter)) {
+  /**
+   * Returns the section name of the item at the touch (from 0..1), without scrolling.
+   */
+  public String getSectionNameAtProgress(float touchFraction) {
+    if (!(getAdapter() instanceof SectionedAdapter) && asyncSectionLoader == null && sectionIndex == null) {
+      return "";
+    }
+    int itemCount = getAdapter().getItemCount();
+    if (itemCount == 0) {
       return "";
     }
 
-    int posInt = (int) ((touchFraction == 1) ? itemPos - 1 : itemPos);
-
-    SectionedAdapter sectionedAdapter = (SectionedAdapter) getAdapter();
-    return sectionedAdapter.getSectionName(posInt);
+    int position = ScrollMath.getPositionAtProgress(itemCount, touchFraction);
+    if (asyncSectionLoader != null && sectionIndex == null) {
+      return asyncSectionLoader.getSectionName(position, asyncSectionPlaceholder);
+    }
+    return getSectionName(position);
   }
 
   /**
@@ -340,11 +1380,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
    * <p>Override in each subclass of this base class.</p>
    */
   public void onUpdateScrollbar(int dy) {
-    int rowCount = getAdapter().getItemCount();
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      int spanCount = ((GridLayoutManager) getLayoutManager()).getSpanCount();
-      rowCount = (int) Math.ceil((double) rowCount / spanCount);
-    }
+    int rowCount = getRowIndex().getRowCount();
     // Skip early if, there are no items.
     if (rowCount == 0) {
       fastScrollBar.setThumbOffset(-1, -1);
@@ -386,59 +1422,163 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
       return;
     }
 
-    stateOut.rowIndex = getChildPosition(child);
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      stateOut.rowIndex = stateOut.rowIndex / ((GridLayoutManager) getLayoutManager()).getSpanCount();
+    int position = getChildPosition(child);
+    if (position == NO_POSITION) {
+      return;
     }
+    stateOut.rowIndex = getRowIndex().getRowForPosition(position);
     stateOut.rowTopOffset = getLayoutManager().getDecoratedTop(child) / (float) child.getHeight();
     stateOut.rowHeight = calculateRowHeight(child.getHeight());
   }
 
   /**
-   * Calculates the row height based on the average of the visible children, to handle scrolling
-   * through children with different heights gracefully
+   * Returns the row height, a smoothed average of the items laid out so far, to handle scrolling through children
+   * with different heights gracefully. The average is kept up to date as items are laid out, so this is O(1).
    */
   protected int calculateRowHeight(int fallbackHeight) {
-    LayoutManager layoutManager = getLayoutManager();
-
-    if (layoutManager instanceof LinearLayoutManager) {
-      final int firstVisiblePosition = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
-      final int lastVisiblePosition = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+    return rowHeightEstimator.getRowHeight(fallbackHeight);
+  }
 
-      if (lastVisiblePosition > firstVisiblePosition) {
-        final int height = getHeight();
-        final int paddingTop = getPaddingTop();
-        final int paddingBottom = getPaddingBottom();
+  /**
+   * Keeps the indexes derived from the adapter in sync with its content.
+   */
+  private class FastScrollDataObserver extends AdapterDataObserver {
 
-        // How many rows are visible, like 10.5f for 10 rows completely and one halfway visible
-        float visibleRows = 0f;
+    @Override public void onChanged() {
+      scrollbarDirty = true;
+      rowIndexValid = false;
+      if (rowHeightIndex != null) {
+        rowHeightIndex.clear();
+      }
+      invalidateSectionCache();
+      fastScrollBar.updateIndexLabels();
+    }
 
-        for (int position = firstVisiblePosition; position <= lastVisiblePosition; position++) {
-          ViewHolder viewHolder = findViewHolderForLayoutPosition(position);
-          if (viewHolder == null || viewHolder.itemView == null) {
-            continue;
-          }
+    @Override public void onItemRangeChanged(int positionStart, int itemCount) {
+      updateRowIndex(positionStart, itemCount, itemCount); // Span sizes may depend on the content of the items
+      if (sectionCache != null) {
+        sectionCache.change(positionStart, itemCount, getAdapter().getItemCount());
+      }
+      invalidateAsyncSections();
+      fastScrollBar.updateIndexLabels();
+    }
 
-          final View itemView = viewHolder.itemView;
-          final int itemHeight = itemView.getHeight();
-          if (itemHeight == 0) {
-            continue;
+    @Override public void onItemRangeInserted(int positionStart, int itemCount) {
+      scrollbarDirty = true;
+      updateRowIndex(positionStart, 0, itemCount);
+      if (rowHeightIndex != null) {
+        if (getSpanCount() == 1) {
+          rowHeightIndex.insertRows(positionStart, itemCount);
+          if (getAdapter() instanceof MeasurableAdapter) {
+            seedInsertedRowHeights(positionStart, itemCount);
           }
+        } else {
+          rowHeightIndex.clear(); // The rows of a grid shift, they are measured again
+        }
+      }
+      if (sectionCache != null) {
+        sectionCache.insert(positionStart, itemCount, getAdapter().getItemCount());
+      }
+      invalidateAsyncSections();
+      fastScrollBar.updateIndexLabels();
+    }
 
-          // Finds how much of the itemView is actually visible.
-          // This allows smooth changes of the scrollbar thumb height
-          final int visibleHeight = itemHeight
-              - Math.max(0, paddingBottom - layoutManager.getDecoratedTop(itemView)) // How much is cut at the top
-              - Math.max(0, paddingBottom + layoutManager.getDecoratedBottom(itemView) - height); // How much is cut at the bottom
-
-          visibleRows += visibleHeight / (float) itemHeight;
+    @Override public void onItemRangeRemoved(int positionStart, int itemCount) {
+      scrollbarDirty = true;
+      updateRowIndex(positionStart, itemCount, 0);
+      if (rowHeightIndex != null) {
+        if (getSpanCount() == 1) {
+          rowHeightIndex.removeRows(positionStart, itemCount);
+        } else {
+          rowHeightIndex.clear(); // The rows of a grid shift, they are measured again
         }
+      }
+      if (sectionCache != null) {
+        sectionCache.remove(positionStart, itemCount, getAdapter().getItemCount());
+      }
+      invalidateAsyncSections();
+      fastScrollBar.updateIndexLabels();
+    }
 
-        return Math.round((height - (paddingTop + paddingBottom)) / visibleRows);
+    @Override public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      scrollbarDirty = true;
+      // The items between the two positions are reordered, the rows outside of them stay the same
+      int moved = Math.abs(toPosition - fromPosition) + itemCount;
+      updateRowIndex(Math.min(fromPosition, toPosition), moved, moved);
+      if (rowHeightIndex != null) {
+        if (getSpanCount() == 1) {
+          rowHeightIndex.moveRows(fromPosition, toPosition, itemCount);
+        } else {
+          rowHeightIndex.clear(); // The rows of a grid shift, they are measured again
+        }
+      }
+      if (sectionCache != null) {
+        sectionCache.move(fromPosition, toPosition, itemCount, getAdapter().getItemCount());
       }
+      invalidateAsyncSections();
+      fastScrollBar.updateIndexLabels();
+    }
+  }
+
+  /**
+   * Adapts the {@link GridLayoutManager.SpanSizeLookup} the row index was built with.
+   */
+  private static class GridSpanSizes implements RowIndex.SpanSizeProvider {
+
+    GridLayoutManager.SpanSizeLookup lookup;
+    int spanCount;
+
+    @Override public int getSpanSize(int position) {
+      return lookup.getSpanSize(position);
     }
+  }
+
+  /**
+   * Listener for the start and end of each drag of the fast scroller thumb.
+   */
+  public interface OnFastScrollStateChangeListener {
+
+    /**
+     * Called when the user starts dragging the thumb.
+     *
+     * @param velocity
+     *     the velocity of the thumb, in pixels per second
+     */
+    void onFastScrollStarted(FastScrollRecyclerView recyclerView, float velocity);
+
+    /**
+     * Called when the user releases the thumb.
+     *
+     * @param velocity
+     *     the velocity of the thumb when it was released, in pixels per second
+     */
+    void onFastScrollStopped(FastScrollRecyclerView recyclerView, float velocity);
+  }
 
-    return fallbackHeight;
+  /**
+   * Listener for changes of the quality level of the {@link FastScrollQualityGovernor}.
+   */
+  public interface OnFastScrollQualityChangeListener {
+
+    /**
+     * @param level
+     *     the new level, one of the {@code QUALITY_*} constants of {@link FastScrollQualityGovernor}
+     */
+    void onFastScrollQualityChanged(FastScrollRecyclerView recyclerView, int level);
+  }
+
+  /**
+   * Listener for the metrics of each drag of the fast scroller thumb.
+   */
+  public interface OnFastScrollMetricsListener {
+
+    /**
+     * Called once when the user stops dragging the thumb.
+     *
+     * @param metrics
+     *     the counters of the drag. The instance is reused for the next drag.
+     */
+    void onFastScrollMetrics(FastScrollMetrics metrics);
   }
 
   /**
@@ -454,6 +1594,89 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     @NonNull String getSectionName(int position);
   }
 
+  /**
+   * <p>Interface to implement in your {@link RecyclerView.Adapter} when the height of each view type is known in
+   * advance, e.g. a header, a row and a card of fixed heights.</p>
+   *
+   * <p>The row height index is enabled and seeded with the height of every row before the first frame, so the thumb
+   * is accurate right away instead of once enough rows were laid out. Measured heights replace the hints as rows are
+   * laid out. Inserted items of a single column list are seeded with their hints. After
+   * {@link Adapter#notifyDataSetChanged()} or an edit of a grid, unmeasured rows are assumed to have the average
+   * hinted height instead of seeding every row again.</p>
+   *
+   * <p>The row height index is disabled again when it was enabled for this adapter and the adapter is replaced by one
+   * that does not implement this interface.</p>
+   */
+  public interface MeasurableAdapter {
+
+    /**
+     * @param recyclerView
+     *     the recycler view, e.g. to convert from dp
+     * @param viewType
+     *     the view type, as returned by {@link RecyclerView.Adapter#getItemViewType(int)}
+     * @return the height of an item of this view type in pixels, including item decorations, or 0 if unknown
+     */
+    int getViewTypeHeight(RecyclerView recyclerView, int viewType);
+  }
+
+  /**
+   * <p>Interface to implement in your {@link RecyclerView.Adapter} when section names can not be returned
+   * synchronously, e.g. because they are read from a database.</p>
+   *
+   * <p>While the thumb is dragged, the popup shows the last known section name (or the placeholder set with
+   * {@link #setAsyncSectionPlaceholder(String)}) until the requested one is delivered. Only one request is made at a
+   * time, the position under the finger when it completes is requested next.</p>
+   */
+  public interface AsyncSectionedAdapter {
+
+    /**
+     * Called on the main thread to request the section name of a position.
+     *
+     * @param position
+     *     the item position
+     * @param callback
+     *     the callback to deliver the section name to, from any thread
+     */
+    void requestSectionName(int position, @NonNull SectionNameCallback callback);
+
+    /**
+     * Called on the main thread when the section name of the position is no longer needed. The answer will be ignored,
+     * so implementations may stop loading it.
+     *
+     * @param position
+     *     the item position passed to {@link #requestSectionName(int, SectionNameCallback)}
+     */
+    void cancelSectionNameRequest(int position);
+  }
+
+  /**
+   * Provides the preview images shown next to the popup, see
+   * {@link #setSectionPreviewProvider(SectionPreviewProvider, Executor, int)}.
+   */
+  public interface SectionPreviewProvider {
+
+    /**
+     * Called on the executor's thread to load the preview of a section.
+     *
+     * @param position
+     *     the item position the thumb points at
+     * @param sectionName
+     *     the section name of that position. Previews are cached by section name.
+     * @param size
+     *     the size of the preview in pixels. Decode the image to about this size, it is center cropped to a square.
+     * @return the preview, or {@code null} if the section has none
+     */
+    @Nullable Bitmap loadSectionPreview(int position, @NonNull String sectionName, int size);
+  }
+
+  /**
+   * Receives a section name requested from an {@link AsyncSectionedAdapter}.
+   */
+  public interface SectionNameCallback {
+
+    void onSectionName(@NonNull String sectionName);
+  }
+
   /**
    * The current scroll state of the recycler view.  We use this in onUpdateScrollbar()
    * and scrollToPositionAtProgress() to determine the scroll position of the recycler view so
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * <p>A frame clock shared by every fast scroller in the process.</p>
+ *
+ * <p>Callbacks are driven by a single {@link Choreographer} frame callback (or a {@link Handler} before Jelly Bean),
+ * which is only posted while at least one callback is waiting for a frame or a wake up time. Nothing is allocated
+ * once the callback list has grown to its working size. Must only be used from the main thread.</p>
+ */
+/*package*/ final class FrameClock {
+
+  /*package*/ static final long STOP = -1;
+  /*package*/ static final long NEXT_FRAME = 0;
+
+  private static final long FALLBACK_FRAME_DELAY = 16;
+
+  private static FrameClock instance;
+
+  /*package*/ static FrameClock getInstance() {
+    if (instance == null) {
+      instance = new FrameClock();
+    }
+    return instance;
+  }
+
+  /*package*/ interface Callback {
+
+    /**
+     * @param frameTimeMillis
+     *     the frame time, in the {@link SystemClock#uptimeMillis()} time base
+     * @return {@link #NEXT_FRAME} to be called on the next frame, an uptime to be called on the first frame after
+     * that time, or {@link #STOP} to stop receiving frames.
+     */
+    long doFrame(long frameTimeMillis);
+  }
+
+  private final ArrayList<Callback> callbacks = new ArrayList<Callback>();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable fallbackFrame = new Runnable() {
+
+    @Override public void run() {
+      dispatchFrame(SystemClock.uptimeMillis());
+    }
+  };
+  private Object choreographerFrame; // Choreographer.FrameCallback, typed as Object to load on API < 16
+
+  private boolean scheduled;
+  private long scheduledTime;
+
+  private FrameClock() {
+  }
+
+  /**
+   * Calls the callback on the next frame, until it returns {@link #STOP}.
+   */
+  /*package*/ void start(Callback callback) {
+    if (!callbacks.contains(callback)) {
+      callbacks.add(callback);
+    }
+    schedule(SystemClock.uptimeMillis());
+  }
+
+  /**
+   * Stops calling the callback.
+   */
+  /*package*/ void stop(Callback callback) {
+    int index = callbacks.indexOf(callback);
+    if (index >= 0) {
+      callbacks.set(index, null); // Removed after the current frame, so dispatching can iterate by index
+    }
+  }
+
+  private void dispatchFrame(long frameTimeMillis) {
+    scheduled = false;
+    long next = Long.MAX_VALUE;
+    for (int i = 0, count = callbacks.size(); i < count; i++) {
+      Callback callback = callbacks.get(i);
+      if (callback == null) {
+        continue;
+      }
+      long wakeUp = callback.doFrame(frameTimeMillis);
+      if (wakeUp == STOP) {
+        if (callbacks.get(i) == callback) {
+          callbacks.set(i, null);
+        }
+      } else {
+        next = Math.min(next, wakeUp);
+      }
+    }
+    for (int i = callbacks.size() - 1; i >= 0; i--) {
+      if (callbacks.get(i) == null) {
+        callbacks.remove(i);
+      }
+    }
+    if (callbacks.size() > 0) {
+      // Callbacks started while dispatching want the next frame as well
+      schedule(next == Long.MAX_VALUE ? NEXT_FRAME : next);
+    }
+  }
+
+  private void schedule(long time) {
+    long now = SystemClock.uptimeMillis();
+    time = Math.max(time, now);
+    if (scheduled) {
+      if (time >= scheduledTime) {
+        return;
+      }
+      cancel();
+    }
+    scheduled = true;
+    scheduledTime = time;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      postFrameCallback(time - now);
+    } else {
+      handler.postDelayed(fallbackFrame, Math.max(time - now, FALLBACK_FRAME_DELAY));
+    }
+  }
+
+  private void cancel() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) choreographerFrame);
+    } else {
+      handler.removeCallbacks(fallbackFrame);
+    }
+    scheduled = false;
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private void postFrameCallback(long delayMillis) {
+    if (choreographerFrame == null) {
+      choreographerFrame = new Choreographer.FrameCallback() {
+
+        @Override public void doFrame(long frameTimeNanos) {
+          dispatchFrame(frameTimeNanos / 1000000);
+        }
+      };
+    }
+    Choreographer.FrameCallback frameCallback = (Choreographer.FrameCallback) choreographerFrame;
+    if (delayMillis > 0) {
+      Choreographer.getInstance().postFrameCallbackDelayed(frameCallback, delayMillis);
+    } else {
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * <p>A running estimate of the row height, fed with the decorated height of each item as it is laid out.</p>
+ *
+ * <p>The estimate is an exponentially smoothed average, so reading it is O(1) and a tall row scrolling in or out at
+ * the edge of the screen only nudges it instead of making the thumb jump. This class must not depend on the Android
+ * framework, it is also compiled into the JVM benchmarks.</p>
+ */
+/*package*/ final class RowHeightEstimator {
+
+  // The weight of each new sample. About the last 1 / SMOOTHING samples contribute to the estimate.
+  private static final float SMOOTHING = 0.1f;
+
+  private float average;
+  private boolean hasSamples;
+
+  /**
+   * Adds the measured height of a row (or of an item in a row).
+   */
+  /*package*/ void addSample(int height) {
+    if (height <= 0) {
+      return;
+    }
+    if (hasSamples) {
+      average += (height - average) * SMOOTHING;
+    } else {
+      average = height;
+      hasSamples = true;
+    }
+  }
+
+  /**
+   * Returns the estimated row height, or {@code fallbackHeight} if no row was measured yet.
+   */
+  /*package*/ int getRowHeight(int fallbackHeight) {
+    return hasSamples ? Math.round(average) : fallbackHeight;
+  }
+
+  /*package*/ boolean hasSamples() {
+    return hasSamples;
+  }
+
+  /**
+   * Forgets all samples, e.g. when the adapter or the layout manager changed.
+   */
+  /*package*/ void reset() {
+    average = 0f;
+    hasSamples = false;
+  }
+
+}
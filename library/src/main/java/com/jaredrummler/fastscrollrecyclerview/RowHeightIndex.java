@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * <p>An index of row heights for lists where rows do not share the same height.</p>
+ *
+ * <p>The measured height of each row is recorded as it is laid out. Rows that have not been measured yet fall back
+ * to an estimate (the average of all measured rows).</p>
+ *
+ * <p>The rows are kept in blocks of up to 128 consecutive rows. Three Fenwick trees over the blocks, holding the number
+ * of rows, the sum of the measured heights and the number of measured rows, answer "row to pixel offset" and "pixel
+ * offset to row" in O(log b + 128) for b blocks. Inserting, removing or moving k rows only shifts the rows of the
+ * blocks they touch, and splits or drops blocks in O(k + b), so range events of the adapter do not copy every row.</p>
+ */
+public class RowHeightIndex {
+
+  public static final int UNKNOWN = -1;
+
+  private static final int BLOCK_SIZE = 64; // The rows of a new block
+  private static final int MAX_BLOCK_SIZE = 2 * BLOCK_SIZE; // A block that would grow past this is split
+
+  private int rowCount;
+  private int blockCount;
+  private int[][] blocks = new int[0][];   // The measured height of each row, or UNKNOWN, by block
+  private int[] blockSizes = new int[0];   // The number of rows in each block, never 0
+  private long[] blockHeights = new long[0]; // The sum of the measured heights of each block
+  private int[] blockMeasured = new int[0];  // The number of measured rows of each block
+  private int[] sizeTree = new int[1];     // 1-based Fenwick trees over the blocks
+  private long[] heightTree = new long[1];
+  private int[] countTree = new int[1];
+  private int highestBit;                  // The highest power of two <= blockCount
+
+  private long measuredHeight;
+  private int measuredCount;
+  private int defaultRowHeight;
+
+  // Set by locate(int)
+  private int foundBlock;
+  private int foundIndex;
+
+  /**
+   * Sets the number of rows. Measured heights of rows that still exist are kept.
+   */
+  public void setRowCount(int count) {
+    if (count < rowCount) {
+      removeRows(count, rowCount - count);
+    } else if (count > rowCount) {
+      insertRows(rowCount, count - rowCount);
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Replaces all rows with rows of the given heights in O(n), e.g. to seed the index with estimated heights. Use
+   * {@link #UNKNOWN} for rows without a height.
+   */
+  public void setRowHeights(int[] rowHeights) {
+    int count = (rowHeights.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    blockCount = 0;
+    ensureBlockCapacity(count);
+    for (int start = 0; start < rowHeights.length; start += BLOCK_SIZE) {
+      setBlock(blockCount++, Arrays.copyOfRange(rowHeights, start, Math.min(rowHeights.length, start + BLOCK_SIZE)));
+    }
+    rebuild();
+  }
+
+  /**
+   * Sets the height used for unmeasured rows until at least one row has been measured.
+   */
+  public void setDefaultRowHeight(int height) {
+    defaultRowHeight = height;
+  }
+
+  /**
+   * Returns the height assumed for rows that have not been measured yet.
+   */
+  public int getEstimatedRowHeight() {
+    if (measuredCount == 0) {
+      return defaultRowHeight;
+    }
+    return (int) ((measuredHeight + measuredCount / 2) / measuredCount);
+  }
+
+  /**
+   * Records the measured height of a row.
+   */
+  public void setRowHeight(int row, int height) {
+    if (row < 0 || row >= rowCount || height < 0) {
+      return;
+    }
+    locate(row);
+    int[] block = blocks[foundBlock];
+    int old = block[foundIndex];
+    if (old == height) {
+      return;
+    }
+    block[foundIndex] = height;
+    if (old == UNKNOWN) {
+      update(foundBlock, 0, height, 1);
+    } else {
+      update(foundBlock, 0, height - old, 0);
+    }
+  }
+
+  /**
+   * Returns the measured height of the row, or the estimated height if the row was not measured yet.
+   */
+  public int getRowHeight(int row) {
+    locate(row);
+    int height = blocks[foundBlock][foundIndex];
+    return height == UNKNOWN ? getEstimatedRowHeight() : height;
+  }
+
+  /**
+   * Returns the offset of the top of the row from the top of the first row.
+   */
+  public long getRowOffset(int row) {
+    row = Math.min(row, rowCount);
+    if (row <= 0) {
+      return 0;
+    }
+    if (row == rowCount) {
+      return getTotalHeight();
+    }
+    locate(row);
+    long height = 0;
+    int count = 0;
+    for (int i = foundBlock; i > 0; i -= i & -i) {
+      height += heightTree[i];
+      count += countTree[i];
+    }
+    int[] block = blocks[foundBlock];
+    for (int i = 0; i < foundIndex; i++) {
+      if (block[i] != UNKNOWN) {
+        height += block[i];
+        count++;
+      }
+    }
+    return height + (long) (row - count) * getEstimatedRowHeight();
+  }
+
+  /**
+   * Returns the total height of all rows.
+   */
+  public long getTotalHeight() {
+    return measuredHeight + (long) (rowCount - measuredCount) * getEstimatedRowHeight();
+  }
+
+  /**
+   * Returns the row which contains the given offset, clamped to the valid rows.
+   */
+  public int getRowAtOffset(long offset) {
+    if (rowCount == 0) {
+      return -1;
+    }
+    int estimate = getEstimatedRowHeight();
+    int block = 0;
+    int row = 0;
+    long sum = 0;
+    for (int bit = highestBit; bit > 0; bit >>= 1) {
+      int next = block + bit;
+      if (next <= blockCount) {
+        long nodeHeight = heightTree[next] + (long) (sizeTree[next] - countTree[next]) * estimate;
+        if (sum + nodeHeight <= offset) {
+          block = next;
+          row += sizeTree[next];
+          sum += nodeHeight;
+        }
+      }
+    }
+    if (block < blockCount) {
+      int[] heights = blocks[block];
+      for (int i = 0, size = blockSizes[block]; i < size; i++) {
+        sum += heights[i] == UNKNOWN ? estimate : heights[i];
+        if (sum > offset) {
+          break;
+        }
+        row++;
+      }
+    }
+    return Math.min(row, rowCount - 1);
+  }
+
+  /**
+   * Inserts unmeasured rows, shifting the following rows down.
+   */
+  public void insertRows(int start, int count) {
+    if (count <= 0 || start < 0 || start > rowCount) {
+      return;
+    }
+    int[] inserted = new int[count];
+    Arrays.fill(inserted, UNKNOWN);
+    insertHeights(start, inserted);
+  }
+
+  /**
+   * Removes rows, shifting the following rows up.
+   */
+  public void removeRows(int start, int count) {
+    if (count <= 0 || start < 0 || start >= rowCount) {
+      return;
+    }
+    count = Math.min(count, rowCount - start);
+    locate(start);
+    int block = foundBlock;
+    int index = foundIndex;
+    int firstEmpty = -1; // The removed rows empty a range of consecutive blocks
+    int emptyCount = 0;
+    while (count > 0) {
+      int[] heights = blocks[block];
+      int size = blockSizes[block];
+      int removed = Math.min(count, size - index);
+      long height = 0;
+      int measured = 0;
+      for (int i = index; i < index + removed; i++) {
+        if (heights[i] != UNKNOWN) {
+          height += heights[i];
+          measured++;
+        }
+      }
+      System.arraycopy(heights, index + removed, heights, index, size - index - removed);
+      count -= removed;
+      if (removed == size) {
+        if (firstEmpty < 0) {
+          firstEmpty = block;
+        }
+        emptyCount++;
+      } else if (emptyCount == 0) {
+        update(block, -removed, -height, -measured);
+      } else {
+        blockSizes[block] -= removed; // The trees are rebuilt below
+        blockHeights[block] -= height;
+        blockMeasured[block] -= measured;
+      }
+      block++;
+      index = 0;
+    }
+    if (emptyCount > 0) {
+      removeBlocks(firstEmpty, emptyCount);
+      mergeBlocks(firstEmpty - 1);
+      rebuild();
+    } else if (mergeBlocks(foundBlock - 1) || mergeBlocks(foundBlock)) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Moves a range of rows, keeping their measured heights.
+   */
+  public void moveRows(int from, int to, int count) {
+    if (count <= 0 || from == to || from < 0 || to < 0 || from + count > rowCount || to + count > rowCount) {
+      return;
+    }
+    int[] moved = new int[count];
+    locate(from);
+    for (int i = 0, block = foundBlock, index = foundIndex; i < count; i++, index++) {
+      if (index == blockSizes[block]) {
+        block++;
+        index = 0;
+      }
+      moved[i] = blocks[block][index];
+    }
+    removeRows(from, count);
+    insertHeights(to, moved);
+  }
+
+  /**
+   * Forgets all measured heights.
+   */
+  public void clear() {
+    for (int block = 0; block < blockCount; block++) {
+      Arrays.fill(blocks[block], UNKNOWN);
+      blockHeights[block] = 0;
+      blockMeasured[block] = 0;
+    }
+    rebuild();
+  }
+
+  /**
+   * Finds the block of the row and the index of the row in it, in O(log b).
+   */
+  private void locate(int row) {
+    int block = 0;
+    int remaining = row;
+    for (int bit = highestBit; bit > 0; bit >>= 1) {
+      int next = block + bit;
+      if (next <= blockCount && sizeTree[next] <= remaining) {
+        block = next;
+        remaining -= sizeTree[next];
+      }
+    }
+    foundBlock = block;
+    foundIndex = remaining;
+  }
+
+  private void insertHeights(int start, int[] inserted) {
+    int count = inserted.length;
+    if (blockCount == 0) {
+      setRowHeights(inserted);
+      return;
+    }
+    int block;
+    int index;
+    if (start == rowCount) {
+      block = blockCount - 1; // Appended to the last block
+      index = blockSizes[block];
+    } else {
+      locate(start);
+      block = foundBlock;
+      index = foundIndex;
+    }
+    int size = blockSizes[block];
+    long height = 0;
+    int measured = 0;
+    for (int value : inserted) {
+      if (value != UNKNOWN) {
+        height += value;
+        measured++;
+      }
+    }
+    if (size + count <= MAX_BLOCK_SIZE) {
+      int[] heights = blocks[block];
+      if (heights.length < size + count) {
+        heights = blocks[block] = Arrays.copyOf(heights, Math.min(MAX_BLOCK_SIZE, Math.max(size + count, size * 2)));
+      }
+      System.arraycopy(heights, index, heights, index + count, size - index);
+      System.arraycopy(inserted, 0, heights, index, count);
+      update(block, count, height, measured);
+      return;
+    }
+    // Split the block, the rows of the block and the inserted rows fill new blocks
+    int[] rows = new int[size + count];
+    System.arraycopy(blocks[block], 0, rows, 0, index);
+    System.arraycopy(inserted, 0, rows, index, count);
+    System.arraycopy(blocks[block], index, rows, index + count, size - index);
+    int newBlocks = (rows.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    ensureBlockCapacity(blockCount + newBlocks - 1);
+    shiftBlocks(block + 1, newBlocks - 1);
+    for (int i = 0; i < newBlocks; i++) {
+      setBlock(block + i, Arrays.copyOfRange(rows, i * BLOCK_SIZE, Math.min(rows.length, (i + 1) * BLOCK_SIZE)));
+    }
+    rebuild();
+  }
+
+  /**
+   * Merges the block with the next one if they fit in a new block, so removing rows does not leave many small blocks.
+   *
+   * @return {@code true} if the blocks were merged, the trees must then be rebuilt
+   */
+  private boolean mergeBlocks(int block) {
+    if (block < 0 || block + 1 >= blockCount || blockSizes[block] + blockSizes[block + 1] > BLOCK_SIZE) {
+      return false;
+    }
+    int size = blockSizes[block];
+    int nextSize = blockSizes[block + 1];
+    int[] heights = Arrays.copyOf(blocks[block], size + nextSize);
+    System.arraycopy(blocks[block + 1], 0, heights, size, nextSize);
+    blocks[block] = heights;
+    blockSizes[block] = size + nextSize;
+    blockHeights[block] += blockHeights[block + 1];
+    blockMeasured[block] += blockMeasured[block + 1];
+    removeBlocks(block + 1, 1);
+    return true;
+  }
+
+  private void setBlock(int block, int[] heights) {
+    long height = 0;
+    int measured = 0;
+    for (int value : heights) {
+      if (value != UNKNOWN) {
+        height += value;
+        measured++;
+      }
+    }
+    blocks[block] = heights;
+    blockSizes[block] = heights.length;
+    blockHeights[block] = height;
+    blockMeasured[block] = measured;
+  }
+
+  /**
+   * Moves the blocks from the given block on by the given number of blocks, growing the block count.
+   */
+  private void shiftBlocks(int block, int count) {
+    int moved = blockCount - block;
+    System.arraycopy(blocks, block, blocks, block + count, moved);
+    System.arraycopy(blockSizes, block, blockSizes, block + count, moved);
+    System.arraycopy(blockHeights, block, blockHeights, block + count, moved);
+    System.arraycopy(blockMeasured, block, blockMeasured, block + count, moved);
+    blockCount += count;
+  }
+
+  private void removeBlocks(int block, int count) {
+    int moved = blockCount - block - count;
+    System.arraycopy(blocks, block + count, blocks, block, moved);
+    System.arraycopy(blockSizes, block + count, blockSizes, block, moved);
+    System.arraycopy(blockHeights, block + count, blockHeights, block, moved);
+    System.arraycopy(blockMeasured, block + count, blockMeasured, block, moved);
+    blockCount -= count;
+    Arrays.fill(blocks, blockCount, blockCount + count, null);
+  }
+
+  private void ensureBlockCapacity(int capacity) {
+    if (capacity > blocks.length) {
+      int newLength = Math.max(capacity, blocks.length * 2);
+      blocks = Arrays.copyOf(blocks, newLength);
+      blockSizes = Arrays.copyOf(blockSizes, newLength);
+      blockHeights = Arrays.copyOf(blockHeights, newLength);
+      blockMeasured = Arrays.copyOf(blockMeasured, newLength);
+    }
+  }
+
+  /**
+   * Adds a change of the rows of a block to the block, the totals and the trees, in O(log b).
+   */
+  private void update(int block, int sizeDelta, long heightDelta, int countDelta) {
+    blockSizes[block] += sizeDelta;
+    blockHeights[block] += heightDelta;
+    blockMeasured[block] += countDelta;
+    rowCount += sizeDelta;
+    measuredHeight += heightDelta;
+    measuredCount += countDelta;
+    for (int i = block + 1; i <= blockCount; i += i & -i) {
+      sizeTree[i] += sizeDelta;
+      heightTree[i] += heightDelta;
+      countTree[i] += countDelta;
+    }
+  }
+
+  /**
+   * Rebuilds the trees and the totals from the blocks in O(b).
+   */
+  private void rebuild() {
+    if (sizeTree.length < blockCount + 1) {
+      sizeTree = new int[blocks.length + 1];
+      heightTree = new long[blocks.length + 1];
+      countTree = new int[blocks.length + 1];
+    } else {
+      Arrays.fill(sizeTree, 0);
+      Arrays.fill(heightTree, 0);
+      Arrays.fill(countTree, 0);
+    }
+    rowCount = 0;
+    measuredHeight = 0;
+    measuredCount = 0;
+    for (int i = 1; i <= blockCount; i++) {
+      sizeTree[i] += blockSizes[i - 1];
+      heightTree[i] += blockHeights[i - 1];
+      countTree[i] += blockMeasured[i - 1];
+      rowCount += blockSizes[i - 1];
+      measuredHeight += blockHeights[i - 1];
+      measuredCount += blockMeasured[i - 1];
+      int parent = i + (i & -i);
+      if (parent <= blockCount) {
+        sizeTree[parent] += sizeTree[i];
+        heightTree[parent] += heightTree[i];
+        countTree[parent] += countTree[i];
+      }
+    }
+    highestBit = blockCount == 0 ? 0 : Integer.highestOneBit(blockCount);
+  }
+
+}
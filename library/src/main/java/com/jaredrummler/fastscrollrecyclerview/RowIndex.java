@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * <p>Maps adapter positions to rows and back.</p>
+ *
+ * <p>When every item spans a single column the mapping is plain arithmetic. When items have different span sizes (e.g.
+ * full width section headers in a grid) the first position of each row is recorded once per adapter change, and
+ * lookups are a binary search over the rows.</p>
+ */
+/*package*/ class RowIndex {
+
+  /*package*/ interface SpanSizeProvider {
+
+    int getSpanSize(int position);
+  }
+
+  private int itemCount;
+  private int spanCount = 1;
+  private int rowCount;
+  private int[] rowStarts; // The first position of each row, or null if all items span one column
+
+  /**
+   * Indexes items which all span a single column.
+   */
+  /*package*/ void setUniform(int itemCount, int spanCount) {
+    this.itemCount = itemCount;
+    this.spanCount = Math.max(1, spanCount);
+    rowCount = ScrollMath.getRowCount(itemCount, this.spanCount);
+    rowStarts = null;
+  }
+
+  /**
+   * Indexes items with arbitrary span sizes, laid out like GridLayoutManager does: an item that does not fit in the
+   * remaining spans of a row starts a new row.
+   */
+  /*package*/ void build(int itemCount, int spanCount, SpanSizeProvider spanSizes) {
+    this.itemCount = itemCount;
+    this.spanCount = Math.max(1, spanCount);
+    int[] starts = rowStarts != null && rowStarts.length >= itemCount ? rowStarts : new int[Math.max(1, itemCount)];
+    int rows = 0;
+    int span = 0;
+    for (int position = 0; position < itemCount; position++) {
+      int size = Math.min(this.spanCount, Math.max(1, spanSizes.getSpanSize(position)));
+      if (span == 0 || span + size > this.spanCount) {
+        starts[rows++] = position;
+        span = 0;
+      }
+      span += size;
+      if (span == this.spanCount) {
+        span = 0;
+      }
+    }
+    rowStarts = starts;
+    rowCount = rows;
+  }
+
+  /**
+   * Updates the rows after the items from {@code positionStart} to {@code positionStart + removed} were replaced by
+   * {@code inserted} items, which covers inserts, removes and changes. Only the rows from the edit until they line up
+   * with the old rows again are laid out, the rows after that are shifted.
+   *
+   * @return {@code false} if the items span a single column or the range is out of bounds, the index must then be
+   * built again
+   */
+  /*package*/ boolean update(int positionStart, int removed, int inserted, SpanSizeProvider spanSizes) {
+    if (rowStarts == null || positionStart < 0 || removed < 0 || inserted < 0 || positionStart + removed > itemCount) {
+      return false;
+    }
+    int delta = inserted - removed;
+    int newItemCount = itemCount + delta;
+    int editEnd = positionStart + inserted;
+    // An item inserted at the start of a row may still fit in the row before it
+    int firstRow = rowCount == 0 ? 0 : getRowForPosition(Math.max(0, Math.min(positionStart, itemCount) - 1));
+    int[] laidOut = new int[8];
+    int laidOutCount = 0;
+    int resyncRow = rowCount; // The first old row the new rows line up with, the rows from there on are shifted
+    int span = 0;
+    for (int position = rowCount == 0 ? 0 : rowStarts[firstRow]; position < newItemCount; position++) {
+      int size = Math.min(spanCount, Math.max(1, spanSizes.getSpanSize(position)));
+      if (span == 0 || span + size > spanCount) {
+        if (position >= editEnd) {
+          int oldRow = Arrays.binarySearch(rowStarts, firstRow, rowCount, position - delta);
+          if (oldRow >= 0) {
+            resyncRow = oldRow;
+            break;
+          }
+        }
+        if (laidOutCount == laidOut.length) {
+          laidOut = Arrays.copyOf(laidOut, laidOutCount * 2);
+        }
+        laidOut[laidOutCount++] = position;
+        span = 0;
+      }
+      span += size;
+      if (span == spanCount) {
+        span = 0;
+      }
+    }
+    int tailCount = rowCount - resyncRow;
+    int newRowCount = firstRow + laidOutCount + tailCount;
+    int[] starts = rowStarts;
+    if (starts.length < newRowCount) {
+      starts = new int[newRowCount + newRowCount / 2];
+      System.arraycopy(rowStarts, 0, starts, 0, firstRow);
+    }
+    System.arraycopy(rowStarts, resyncRow, starts, firstRow + laidOutCount, tailCount);
+    System.arraycopy(laidOut, 0, starts, firstRow, laidOutCount);
+    for (int row = firstRow + laidOutCount; row < newRowCount; row++) {
+      starts[row] += delta;
+    }
+    rowStarts = starts;
+    rowCount = newRowCount;
+    itemCount = newItemCount;
+    return true;
+  }
+
+  /*package*/ int getItemCount() {
+    return itemCount;
+  }
+
+  /*package*/ int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Returns the row of the adapter position.
+   */
+  /*package*/ int getRowForPosition(int position) {
+    if (rowStarts == null) {
+      return position / spanCount;
+    }
+    int row = Arrays.binarySearch(rowStarts, 0, rowCount, position);
+    return row >= 0 ? row : -row - 2;
+  }
+
+  /**
+   * Returns the first adapter position in the row.
+   */
+  /*package*/ int getFirstPositionForRow(int row) {
+    row = Math.max(0, Math.min(row, rowCount - 1));
+    if (rowStarts == null) {
+      return row * spanCount;
+    }
+    return rowCount == 0 ? 0 : rowStarts[row];
+  }
+
+}
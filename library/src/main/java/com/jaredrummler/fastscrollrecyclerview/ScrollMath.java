@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * <p>The arithmetic that maps between the scroll position of the list and the scroll bar. This class must not depend on
+ * the Android framework, it is also compiled into the JVM benchmarks.</p>
+ *
+ * <p>Scroll offsets are in {@code long} and scaled in {@code double}, so lists with billions of pixels of content
+ * neither overflow nor lose whole rows to float rounding.</p>
+ */
+/*package*/ final class ScrollMath {
+
+  private ScrollMath() {
+  }
+
+  /**
+   * Returns the number of rows needed for the items, when each row holds {@code spanCount} items.
+   */
+  static int getRowCount(int itemCount, int spanCount) {
+    return (int) Math.ceil((double) itemCount / spanCount);
+  }
+
+  /**
+   * Returns the scroll offset of the list, when all rows have the same height.
+   *
+   * @param rowIndex
+   *     the index of the first visible row
+   * @param rowTopOffset
+   *     the offset of the first visible row, in percentage of the row height
+   * @param rowHeight
+   *     the height of a row
+   */
+  static long getScrollY(int rowIndex, float rowTopOffset, int rowHeight) {
+    return Math.round(((double) rowIndex - rowTopOffset) * rowHeight);
+  }
+
+  /**
+   * Maps the scroll offset of the list to the offset of the thumb from the top of the scroll bar.
+   */
+  static int getThumbOffset(long scrollY, long availableScrollHeight, int availableScrollBarHeight) {
+    return (int) (((double) scrollY / availableScrollHeight) * availableScrollBarHeight);
+  }
+
+  /**
+   * Maps the touch (from 0..1) to the scroll offset of the list.
+   */
+  static long getScrollOffsetAtProgress(long availableScrollHeight, float touchFraction) {
+    return (long) (availableScrollHeight * (double) touchFraction);
+  }
+
+  /**
+   * Returns the row at the scroll offset, when all rows have the same height.
+   */
+  static int getRowAtScrollOffset(long scrollOffset, int rowHeight) {
+    return (int) Math.min(Integer.MAX_VALUE, scrollOffset / rowHeight);
+  }
+
+  /**
+   * Returns how far the scroll offset is past the top of its row, when all rows have the same height.
+   */
+  static int getOffsetInRow(long scrollOffset, int rowHeight) {
+    return (int) (scrollOffset % rowHeight);
+  }
+
+  /**
+   * Maps the touch (from 0..1) to the adapter position used for the section name.
+   */
+  static int getPositionAtProgress(int itemCount, float touchFraction) {
+    double itemPos = itemCount * (double) touchFraction;
+    int position = (int) ((touchFraction == 1) ? itemPos - 1 : itemPos);
+    return Math.max(0, Math.min(position, itemCount - 1));
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.SystemClock;
+
+/**
+ * <p>Animates the width and color of the scroll bar, the alpha of the popup and hides the scroll bar after a delay.</p>
+ *
+ * <p>All state is kept in primitive fields and driven by the shared {@link FrameClock}, so showing and hiding the
+ * scroll bar does not allocate.</p>
+ */
+/*package*/ class ScrollbarAnimator implements FrameClock.Callback {
+
+  private static final int SCROLL_BAR_VIS_DURATION = 150;
+  private static final int POPUP_SHOW_DURATION = 200;
+  private static final int POPUP_HIDE_DURATION = 150;
+
+  private final FastScrollBar scrollBar;
+
+  private boolean scrollbarRunning;
+  private long scrollbarStartTime;
+  private int fromWidth;
+  private int toWidth;
+  private int fromColor;
+  private int toColor;
+
+  private boolean popupRunning;
+  private long popupStartTime;
+  private int popupDuration;
+  private float fromAlpha;
+  private float toAlpha;
+
+  private long hideTime; // The uptime at which to hide the scroll bar, or 0
+
+  /*package*/ ScrollbarAnimator(FastScrollBar scrollBar) {
+    this.scrollBar = scrollBar;
+  }
+
+  /**
+   * Animates the width and color of the scroll bar to its active or inactive state.
+   */
+  /*package*/ void animateScrollbar(int width, int color) {
+    fromWidth = scrollBar.getThumbWidth();
+    toWidth = width;
+    fromColor = scrollBar.thumbPaint.getColor();
+    toColor = color;
+    scrollbarStartTime = SystemClock.uptimeMillis();
+    scrollbarRunning = true;
+    FrameClock.getInstance().start(this);
+  }
+
+  /**
+   * Animates the alpha of the popup.
+   */
+  /*package*/ void animatePopup(boolean visible) {
+    fromAlpha = scrollBar.getFastScrollPopup().getAlpha();
+    toAlpha = visible ? 1f : 0f;
+    popupDuration = visible ? POPUP_SHOW_DURATION : POPUP_HIDE_DURATION;
+    popupStartTime = SystemClock.uptimeMillis();
+    popupRunning = true;
+    FrameClock.getInstance().start(this);
+  }
+
+  /**
+   * Hides the scroll bar after the delay, unless the thumb is being dragged at that time.
+   */
+  /*package*/ void scheduleHide(long delayMillis) {
+    hideTime = SystemClock.uptimeMillis() + delayMillis;
+    FrameClock.getInstance().start(this);
+  }
+
+  /*package*/ void cancelHide() {
+    hideTime = 0;
+  }
+
+  /**
+   * Jumps all running animations (and a pending hide) to their end state and stops receiving frames.
+   */
+  /*package*/ void end() {
+    if (hideTime > 0) {
+      hideTime = 0;
+      if (!scrollBar.isDraggingThumb()) {
+        scrollBar.animateScrollbar(false);
+      }
+    }
+    if (scrollbarRunning || popupRunning) {
+      doFrame(Long.MAX_VALUE);
+    }
+    FrameClock.getInstance().stop(this);
+  }
+
+  @Override public long doFrame(long frameTimeMillis) {
+    if (hideTime > 0 && frameTimeMillis >= hideTime) {
+      hideTime = 0;
+      if (!scrollBar.isDraggingThumb()) {
+        scrollBar.animateScrollbar(false);
+      }
+    }
+
+    if (scrollbarRunning) {
+      float fraction = getFraction(frameTimeMillis, scrollbarStartTime, SCROLL_BAR_VIS_DURATION);
+      int width = fromWidth + Math.round((toWidth - fromWidth) * fraction);
+      scrollBar.setTrackWidth(width);
+      scrollBar.setThumbWidth(width);
+      if (fromColor != toColor) {
+        scrollBar.setThumbColor(Utilities.blendArgb(fromColor, toColor, fraction));
+      }
+      scrollbarRunning = fraction < 1f;
+    }
+
+    if (popupRunning) {
+      float fraction = getFraction(frameTimeMillis, popupStartTime, popupDuration);
+      scrollBar.getFastScrollPopup().setAlpha(fromAlpha + (toAlpha - fromAlpha) * fraction);
+      popupRunning = fraction < 1f;
+    }
+
+    if (scrollbarRunning || popupRunning) {
+      return FrameClock.NEXT_FRAME;
+    }
+    return hideTime > 0 ? hideTime : FrameClock.STOP;
+  }
+
+  /**
+   * Returns the interpolated fraction of the animation, using the same curve as the default ValueAnimator
+   * interpolator (accelerate/decelerate).
+   */
+  private static float getFraction(long frameTimeMillis, long startTime, int duration) {
+    float fraction = Math.max(0f, Math.min(1f, (frameTimeMillis - startTime) / (float) duration));
+    return (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+
+import com.jaredrummler.fastscrollrecyclerview.FastScrollRecyclerView.SectionedAdapter;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <p>A cache of the section name of every adapter position.</p>
+ *
+ * <p>The cache is built on a caller supplied {@link Executor} as {@link SectionRuns} and handed to the UI thread, which
+ * is the only thread to touch it from then on. A fast scroll drag only does a tree lookup over the runs of equal
+ * section names. Until the runs are ready (or after the adapter changed) {@link #getSectionName(int)} returns
+ * {@code null} and the caller should ask the adapter directly. The recycler view is told when new runs are ready, so
+ * that it can update the labels of the index.</p>
+ *
+ * <p>Range events of the adapter are applied to the runs in place, asking the adapter only for the names of the
+ * inserted or changed items. Only {@link #invalidate(int)}, for a change of the whole data set, builds the runs
+ * again.</p>
+ *
+ * <p>{@link SectionedAdapter#getSectionName(int)} is called from the executor's thread, so it must be safe to call
+ * from a background thread.</p>
+ */
+/*package*/ class SectionCache {
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final FastScrollRecyclerView recyclerView;
+  private final Executor executor;
+
+  private volatile int generation;
+  private SectionedAdapter adapter;
+  private SectionRuns sections;
+  private SectionIndex sectionIndex; // A snapshot of the runs, dropped when they change
+  private final SectionRuns.NameSource adapterNames = new SectionRuns.NameSource() {
+
+    @Override public String getSectionName(int position) {
+      return adapter.getSectionName(position);
+    }
+  };
+
+  /*package*/ SectionCache(FastScrollRecyclerView recyclerView, Executor executor) {
+    this.recyclerView = recyclerView;
+    this.executor = executor;
+  }
+
+  /**
+   * Sets the adapter to build the cache from and starts building it.
+   */
+  /*package*/ void setAdapter(RecyclerView.Adapter adapter) {
+    this.adapter = adapter instanceof SectionedAdapter ? (SectionedAdapter) adapter : null;
+    invalidate(adapter == null ? 0 : adapter.getItemCount());
+  }
+
+  /**
+   * Drops the current snapshot and starts building a new one.
+   *
+   * @param itemCount
+   *     the number of items in the adapter
+   */
+  /*package*/ void invalidate(int itemCount) {
+    final int buildGeneration = ++generation;
+    sections = null;
+    sectionIndex = null;
+    if (adapter == null) {
+      return;
+    }
+    if (itemCount == 0) {
+      sections = new SectionRuns(); // Ready, items inserted later are applied to it
+      return;
+    }
+    final SectionedAdapter sectionedAdapter = adapter;
+    final int count = itemCount;
+    executor.execute(new Runnable() {
+
+      @Override public void run() {
+        final SectionRuns runs = new SectionRuns();
+        runs.build(count, new SectionRuns.NameSource() {
+
+          @Override public String getSectionName(int position) {
+            // Once the adapter changed the runs are dropped, finish the pass without asking the adapter
+            return buildGeneration == generation ? sectionedAdapter.getSectionName(position) : "";
+          }
+        });
+        if (buildGeneration != generation) {
+          return; // A newer build is on its way
+        }
+        handler.post(new Runnable() {
+
+          @Override public void run() {
+            if (buildGeneration == generation) {
+              sections = runs;
+              recyclerView.onSectionCacheReady();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Applies inserted items to the runs. While the runs are still being built the build starts over, like for the
+   * other range events, as it may have read the adapter before the change.
+   *
+   * @param itemCount
+   *     the number of items in the adapter after the change
+   */
+  /*package*/ void insert(int positionStart, int count, int itemCount) {
+    sectionIndex = null;
+    if (sections != null) {
+      sections.insert(positionStart, count, adapterNames);
+    } else {
+      invalidate(itemCount);
+    }
+  }
+
+  /*package*/ void remove(int positionStart, int count, int itemCount) {
+    sectionIndex = null;
+    if (sections != null) {
+      sections.remove(positionStart, count);
+    } else {
+      invalidate(itemCount);
+    }
+  }
+
+  /*package*/ void move(int fromPosition, int toPosition, int count, int itemCount) {
+    sectionIndex = null;
+    if (sections != null) {
+      sections.move(fromPosition, toPosition, count);
+    } else {
+      invalidate(itemCount);
+    }
+  }
+
+  /*package*/ void change(int positionStart, int count, int itemCount) {
+    sectionIndex = null;
+    if (sections != null) {
+      sections.change(positionStart, count, adapterNames);
+    } else {
+      invalidate(itemCount);
+    }
+  }
+
+  /**
+   * Returns the cached section name, or {@code null} if the cache is not ready.
+   */
+  /*package*/ String getSectionName(int position) {
+    SectionRuns runs = sections;
+    return runs == null || position < 0 || position >= runs.getItemCount() ? null : runs.getSectionName(position);
+  }
+
+  /**
+   * Returns the sections of the runs, or {@code null} if the cache is not ready. The sections are kept until the runs
+   * change, so this only walks the runs once per change.
+   */
+  /*package*/ SectionIndex getSectionIndex() {
+    if (sectionIndex == null && sections != null) {
+      sectionIndex = sections.toSectionIndex();
+    }
+    return sectionIndex;
+  }
+
+  /**
+   * Returns the estimated heap size of the cache in bytes, or 0 if it is not ready.
+   */
+  /*package*/ long getMemoryFootprint() {
+    SectionRuns runs = sections;
+    return runs == null ? 0 : runs.getMemoryFootprint();
+  }
+
+  /*package*/ boolean isReady() {
+    return sections != null;
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * <p>The sections of a sorted dataset, described by the label and the number of items of each section (for example
+ * the result of a {@code GROUP BY} query on the first letter).</p>
+ *
+ * <p>The index only stores the labels and the first position of each section, so it takes a few hundred bytes for
+ * a few dozen sections no matter how many items there are. Positions are resolved to sections by binary search.</p>
+ */
+public class SectionIndex {
+
+  private final String[] labels;
+  private final int[] starts; // The first position of each section, followed by the total number of items
+
+  /**
+   * @param labels
+   *     the label of each section, in adapter order
+   * @param counts
+   *     the number of items in each section
+   */
+  public SectionIndex(String[] labels, int[] counts) {
+    if (labels.length != counts.length) {
+      throw new IllegalArgumentException("labels and counts must have the same length");
+    }
+    this.labels = labels.clone();
+    starts = new int[counts.length + 1];
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] < 0) {
+        throw new IllegalArgumentException("Section " + labels[i] + " has a negative count");
+      }
+      starts[i + 1] = starts[i] + counts[i];
+    }
+  }
+
+  public int getSectionCount() {
+    return labels.length;
+  }
+
+  /**
+   * Returns the total number of items in all sections.
+   */
+  public int getItemCount() {
+    return starts[labels.length];
+  }
+
+  public String getSectionLabel(int section) {
+    return labels[section];
+  }
+
+  /**
+   * Returns the section which contains the position. Positions past the last item belong to the last section.
+   */
+  public int getSectionForPosition(int position) {
+    if (labels.length == 0) {
+      return -1;
+    }
+    // Find the last section which starts at or before the position, skipping empty sections
+    int index = Arrays.binarySearch(starts, 0, labels.length, position);
+    if (index < 0) {
+      index = -index - 2;
+    } else {
+      while (index + 1 < labels.length && starts[index + 1] == position) {
+        index++;
+      }
+    }
+    return Math.max(0, index);
+  }
+
+  /**
+   * Returns the first position of the section.
+   */
+  public int getPositionForSection(int section) {
+    return starts[section];
+  }
+
+  /**
+   * Returns the label of the section which contains the position, or an empty string if there are no sections.
+   */
+  public String getSectionName(int position) {
+    int section = getSectionForPosition(position);
+    return section == -1 ? "" : labels[section];
+  }
+
+}
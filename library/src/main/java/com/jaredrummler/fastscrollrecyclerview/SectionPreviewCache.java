@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+
+import com.jaredrummler.fastscrollrecyclerview.FastScrollRecyclerView.SectionPreviewProvider;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>A size bounded cache of the preview bitmap of each section, loaded from a {@link SectionPreviewProvider} on a
+ * caller supplied {@link Executor}.</p>
+ *
+ * <p>Looking up a preview never blocks: a missing preview is loaded in the background and shown once it arrives. At
+ * most one preview is loaded at a time. While it is, only the latest wanted section is remembered, so a fast drag does
+ * not queue a decode for every section it passes. Sections without a preview are remembered until {@link #clear()}, so
+ * they are not loaded again. The cache is trimmed when the system is low on memory.</p>
+ */
+/*package*/ class SectionPreviewCache {
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final FastScrollRecyclerView recyclerView;
+  private final SectionPreviewProvider provider;
+  private final Executor executor;
+  private final LruCache<String, Bitmap> cache;
+  private final Set<String> missing = new HashSet<String>(); // Sections the provider has no preview for
+  private final int previewSize;
+  private Object memoryCallbacks; // ComponentCallbacks2, typed as Object to load on API < 14
+
+  private int generation;
+  private String loadingName; // The section of the load in flight
+  private String wantedName;  // The section currently under the finger
+  private int wantedPosition;
+
+  /*package*/ SectionPreviewCache(FastScrollRecyclerView recyclerView, SectionPreviewProvider provider,
+      Executor executor, int maxBytes, int previewSize) {
+    this.recyclerView = recyclerView;
+    this.provider = provider;
+    this.executor = executor;
+    this.previewSize = previewSize;
+    cache = new LruCache<String, Bitmap>(maxBytes) {
+
+      @Override protected int sizeOf(String key, Bitmap value) {
+        return value.getRowBytes() * value.getHeight();
+      }
+    };
+  }
+
+  /**
+   * Returns the cached preview of the section, or {@code null} and starts loading it.
+   */
+  /*package*/ Bitmap getPreview(String sectionName, int position) {
+    Bitmap preview = cache.get(sectionName);
+    if (preview == null && !missing.contains(sectionName)) {
+      wantedName = sectionName;
+      wantedPosition = position;
+      if (loadingName == null) {
+        load(sectionName, position);
+      }
+    }
+    return preview;
+  }
+
+  /**
+   * Drops all previews and ignores the load in flight, e.g. when the adapter changed.
+   */
+  /*package*/ void clear() {
+    generation++;
+    loadingName = null;
+    wantedName = null;
+    cache.evictAll();
+    missing.clear();
+  }
+
+  private void load(final String sectionName, final int position) {
+    final int loadGeneration = generation;
+    loadingName = sectionName;
+    executor.execute(new Runnable() {
+
+      @Override public void run() {
+        Bitmap preview = null;
+        try {
+          preview = provider.loadSectionPreview(position, sectionName, previewSize);
+        } finally {
+          // Always complete the load, a provider that throws must not block every later load
+          postPreviewLoaded(loadGeneration, sectionName, preview);
+        }
+      }
+    });
+  }
+
+  private void postPreviewLoaded(final int loadGeneration, final String sectionName, final Bitmap preview) {
+    handler.post(new Runnable() {
+
+      @Override public void run() {
+        onPreviewLoaded(loadGeneration, sectionName, preview);
+      }
+    });
+  }
+
+  private void onPreviewLoaded(int loadGeneration, String sectionName, Bitmap preview) {
+    if (loadGeneration != generation) {
+      return;
+    }
+    loadingName = null;
+    if (preview != null) {
+      cache.put(sectionName, preview);
+      recyclerView.fastScrollBar.onSectionPreviewLoaded(sectionName, preview);
+    } else {
+      missing.add(sectionName);
+    }
+    if (wantedName != null && !wantedName.equals(sectionName) && !missing.contains(wantedName) &&
+        cache.get(wantedName) == null) {
+      load(wantedName, wantedPosition);
+    }
+  }
+
+  /**
+   * Starts trimming the cache when the system is low on memory. Requires API 14.
+   */
+  /*package*/ void registerMemoryCallbacks(Context context) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      registerComponentCallbacks(context.getApplicationContext());
+    }
+  }
+
+  /*package*/ void unregisterMemoryCallbacks(Context context) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH && memoryCallbacks != null) {
+      context.getApplicationContext().unregisterComponentCallbacks((ComponentCallbacks2) memoryCallbacks);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private void registerComponentCallbacks(Context context) {
+    if (memoryCallbacks == null) {
+      memoryCallbacks = new ComponentCallbacks2() {
+
+        @Override public void onTrimMemory(int level) {
+          trimMemory(level);
+        }
+
+        @Override public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override public void onLowMemory() {
+          cache.evictAll();
+        }
+      };
+    }
+    context.registerComponentCallbacks((ComponentCallbacks2) memoryCallbacks);
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN ||
+        level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      cache.evictAll(); // Previews are only shown while dragging, they are not needed in the background
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      cache.trimToSize(cache.maxSize() / 2);
+    }
+  }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <p>The sections of a list stored as runs of consecutive items that share a section name. Must not depend on the
+ * Android framework.</p>
+ *
+ * <p>Each run is the id of its label and its length in primitive arrays, and equal labels are interned, so every
+ * distinct label is kept once no matter how many strings the adapter allocated for it. The runs grow with the number
+ * of sections instead of the number of items: a 5M item list with 30 sections takes a few kilobytes where a
+ * {@code String[]} takes 20MB of references alone.</p>
+ *
+ * <p>A Fenwick tree over the run lengths resolves a position to its run, and a run to its first position, in
+ * O(log r) for r runs. Inserting, removing and moving k items updates the runs in place in O(k log r) while the
+ * items join existing runs, and in O(r) when a run is split, emptied or merged. Only the names of inserted or
+ * changed items are asked for, so the runs never need to be rebuilt for a range event.</p>
+ */
+/*package*/ class SectionRuns {
+
+  /*package*/ interface NameSource {
+
+    String getSectionName(int position);
+  }
+
+  // Estimated sizes on ART, which uses 4 byte references
+  private static final int ARRAY_HEADER_BYTES = 16;
+  private static final int STRING_OVERHEAD_BYTES = 40; // The String object and the header of its characters
+  private static final int MAP_ENTRY_BYTES = 40; // The entry, its boxed id and its slot in the table
+
+  private final HashMap<String, Integer> labelIds = new HashMap<String, Integer>();
+  private final ArrayList<String> labels = new ArrayList<String>(); // The distinct labels, by id
+  private int[] runLabels = new int[16]; // The label id of each run
+  private int[] counts = new int[16];
+  private int[] tree = new int[17]; // 1-based Fenwick tree of the run lengths
+  private int runCount;
+  private int itemCount;
+  private int highestBit; // The highest power of two <= runCount
+
+  /**
+   * Builds the runs from the name of every item, in O(n).
+   */
+  /*package*/ void build(int itemCount, NameSource names) {
+    runCount = 0;
+    this.itemCount = 0;
+    labelIds.clear();
+    labels.clear();
+    for (int position = 0; position < itemCount; position++) {
+      int label = intern(names.getSectionName(position));
+      if (runCount == 0 || label != runLabels[runCount - 1]) {
+        ensureCapacity(runCount + 1);
+        runLabels[runCount] = label;
+        counts[runCount] = 0;
+        runCount++;
+      }
+      counts[runCount - 1]++;
+      this.itemCount++;
+    }
+    rebuild();
+  }
+
+  /*package*/ int getItemCount() {
+    return itemCount;
+  }
+
+  /*package*/ int getRunCount() {
+    return runCount;
+  }
+
+  /**
+   * Returns the run which contains the position. Positions past the last item belong to the last run.
+   */
+  /*package*/ int getRunForPosition(int position) {
+    int run = 0;
+    int remaining = position;
+    for (int bit = highestBit; bit > 0; bit >>= 1) {
+      int next = run + bit;
+      if (next <= runCount && tree[next] <= remaining) {
+        run = next;
+        remaining -= tree[next];
+      }
+    }
+    return Math.min(run, runCount - 1);
+  }
+
+  /**
+   * Returns the first position of the run.
+   */
+  /*package*/ int getRunStart(int run) {
+    int start = 0;
+    for (int i = run; i > 0; i -= i & -i) {
+      start += tree[i];
+    }
+    return start;
+  }
+
+  /*package*/ String getLabel(int run) {
+    return labels.get(runLabels[run]);
+  }
+
+  /**
+   * Returns the number of distinct labels seen since the runs were built, including those of removed items.
+   */
+  /*package*/ int getLabelCount() {
+    return labels.size();
+  }
+
+  /**
+   * Returns the section name of the position, or an empty string if there are no items.
+   */
+  /*package*/ String getSectionName(int position) {
+    return runCount == 0 ? "" : getLabel(getRunForPosition(Math.max(0, position)));
+  }
+
+  /**
+   * Returns the estimated heap size of the runs in bytes: the run arrays, the tree, the label table and the distinct
+   * labels.
+   */
+  /*package*/ long getMemoryFootprint() {
+    long bytes = 3 * ARRAY_HEADER_BYTES + 4L * (runLabels.length + counts.length + tree.length);
+    bytes += 2 * ARRAY_HEADER_BYTES + 8L * labels.size(); // The list and the table of the map
+    for (int i = 0, size = labels.size(); i < size; i++) {
+      bytes += STRING_OVERHEAD_BYTES + MAP_ENTRY_BYTES + 2L * labels.get(i).length();
+    }
+    return bytes;
+  }
+
+  /**
+   * Inserts items, asking for the name of each inserted position.
+   */
+  /*package*/ void insert(int positionStart, int count, NameSource names) {
+    positionStart = Math.max(0, Math.min(positionStart, itemCount));
+    for (int i = 0; i < count; i++) {
+      insertItem(positionStart + i, names.getSectionName(positionStart + i));
+    }
+  }
+
+  /**
+   * Removes items, merging the runs around a run that became empty.
+   */
+  /*package*/ void remove(int positionStart, int count) {
+    positionStart = Math.max(0, positionStart);
+    count = Math.min(count, itemCount - positionStart);
+    while (count > 0) {
+      int run = getRunForPosition(positionStart);
+      int removed = Math.min(count, getRunStart(run) + counts[run] - positionStart);
+      counts[run] -= removed;
+      itemCount -= removed;
+      count -= removed;
+      if (counts[run] == 0) {
+        removeRun(run);
+      } else {
+        add(run, -removed);
+      }
+    }
+  }
+
+  /**
+   * Moves items to a new position, keeping their names.
+   */
+  /*package*/ void move(int fromPosition, int toPosition, int count) {
+    if (fromPosition == toPosition || count <= 0 || fromPosition + count > itemCount) {
+      return;
+    }
+    final String[] moved = new String[count]; // Interned, so inserting them again adds no labels
+    for (int i = 0; i < count; i++) {
+      moved[i] = getSectionName(fromPosition + i);
+    }
+    remove(fromPosition, count);
+    final int start = Math.min(toPosition, itemCount);
+    insert(start, count, new NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return moved[position - start];
+      }
+    });
+  }
+
+  /**
+   * Updates the names of changed items.
+   */
+  /*package*/ void change(int positionStart, int count, NameSource names) {
+    count = Math.min(count, itemCount - positionStart);
+    if (count > 0) {
+      remove(positionStart, count);
+      insert(positionStart, count, names);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the runs, in O(r).
+   */
+  /*package*/ SectionIndex toSectionIndex() {
+    String[] runNames = new String[runCount];
+    for (int run = 0; run < runCount; run++) {
+      runNames[run] = getLabel(run);
+    }
+    return new SectionIndex(runNames, Arrays.copyOf(counts, runCount));
+  }
+
+  /**
+   * Returns the id of the label, adding it to the table the first time it is seen.
+   */
+  private int intern(String name) {
+    if (name == null) {
+      name = "";
+    }
+    Integer id = labelIds.get(name);
+    if (id == null) {
+      id = labels.size();
+      labelIds.put(name, id);
+      labels.add(name);
+    }
+    return id;
+  }
+
+  private void insertItem(int position, String name) {
+    int label = intern(name);
+    if (runCount == 0) {
+      insertRun(0, label, 1);
+      return;
+    }
+    int run = position == itemCount ? runCount - 1 : getRunForPosition(position);
+    int offset = position - getRunStart(run);
+    if (label == runLabels[run]) {
+      counts[run]++;
+      itemCount++;
+      add(run, 1);
+    } else if (offset == 0 && run > 0 && label == runLabels[run - 1]) {
+      counts[run - 1]++; // Appended to the end of the previous run
+      itemCount++;
+      add(run - 1, 1);
+    } else if (offset == 0) {
+      insertRun(run, label, 1);
+    } else if (offset == counts[run]) {
+      insertRun(run + 1, label, 1); // Appended after the last run
+    } else {
+      // Split the run around the new item
+      int tail = counts[run] - offset;
+      counts[run] = offset;
+      itemCount -= tail;
+      insertRun(run + 1, runLabels[run], tail);
+      insertRun(run + 1, label, 1);
+    }
+  }
+
+  private void insertRun(int run, int label, int count) {
+    ensureCapacity(runCount + 1);
+    System.arraycopy(runLabels, run, runLabels, run + 1, runCount - run);
+    System.arraycopy(counts, run, counts, run + 1, runCount - run);
+    runLabels[run] = label;
+    counts[run] = count;
+    runCount++;
+    itemCount += count;
+    rebuild();
+  }
+
+  private void removeRun(int run) {
+    System.arraycopy(runLabels, run + 1, runLabels, run, runCount - run - 1);
+    System.arraycopy(counts, run + 1, counts, run, runCount - run - 1);
+    runCount--;
+    if (run > 0 && run < runCount && runLabels[run - 1] == runLabels[run]) {
+      // The runs around the removed run have the same name
+      counts[run - 1] += counts[run];
+      System.arraycopy(runLabels, run + 1, runLabels, run, runCount - run - 1);
+      System.arraycopy(counts, run + 1, counts, run, runCount - run - 1);
+      runCount--;
+    }
+    rebuild();
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > runLabels.length) {
+      int newLength = Math.max(capacity, runLabels.length * 2);
+      runLabels = Arrays.copyOf(runLabels, newLength);
+      counts = Arrays.copyOf(counts, newLength);
+    }
+  }
+
+  private void add(int run, int delta) {
+    for (int i = run + 1; i <= runCount; i += i & -i) {
+      tree[i] += delta;
+    }
+  }
+
+  /**
+   * Rebuilds the tree from the run lengths in O(r).
+   */
+  private void rebuild() {
+    if (tree.length < runCount + 1) {
+      tree = new int[runLabels.length + 1];
+    } else {
+      Arrays.fill(tree, 0);
+    }
+    for (int i = 1; i <= runCount; i++) {
+      tree[i] += counts[i - 1];
+      int parent = i + (i & -i);
+      if (parent <= runCount) {
+        tree[parent] += tree[i];
+      }
+    }
+    highestBit = runCount == 0 ? 0 : Integer.highestOneBit(runCount);
+  }
+
+}
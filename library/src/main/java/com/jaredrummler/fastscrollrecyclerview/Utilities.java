@@ -17,15 +17,52 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
+import android.annotation.TargetApi;
 import android.content.res.Resources;
 import android.os.Build;
+import android.view.Display;
 import android.view.View;
 
+import java.util.concurrent.TimeUnit;
+
 final class Utilities {
 
+  private static final float DEFAULT_REFRESH_RATE = 60f;
+
   static boolean isRtl(Resources res) {
     return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 &&
         res.getConfiguration().getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
   }
 
+  /**
+   * Blends two colors without allocating, like {@link android.animation.ArgbEvaluator}.
+   */
+  static int blendArgb(int from, int to, float fraction) {
+    int a = (from >>> 24) + Math.round(((to >>> 24) - (from >>> 24)) * fraction);
+    int r = ((from >> 16) & 0xff) + Math.round((((to >> 16) & 0xff) - ((from >> 16) & 0xff)) * fraction);
+    int g = ((from >> 8) & 0xff) + Math.round((((to >> 8) & 0xff) - ((from >> 8) & 0xff)) * fraction);
+    int b = (from & 0xff) + Math.round(((to & 0xff) - (from & 0xff)) * fraction);
+    return a << 24 | r << 16 | g << 8 | b;
+  }
+
+  /**
+   * Returns the time between two frames of the display the view is attached to, assuming 60 Hz if unknown.
+   */
+  static long getFrameIntervalNanos(View view) {
+    float refreshRate = DEFAULT_REFRESH_RATE;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      refreshRate = getRefreshRate(view);
+    }
+    return (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private static float getRefreshRate(View view) {
+    Display display = view.getDisplay();
+    if (display != null && display.getRefreshRate() >= 30f) {
+      return display.getRefreshRate();
+    }
+    return DEFAULT_REFRESH_RATE;
+  }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FastScrollIndexBarTest {
+
+  @Test
+  public void fixedLabels_jumpToFirstSectionNotSortingBefore() throws Exception {
+    SectionIndex index = new SectionIndex(new String[]{"B", "D", "F"}, new int[]{2, 3, 4});
+    String[] labels = {"#", "A", "b", "C", "D", "e", "F"};
+    int[] positions = FastScrollIndexBar.getPositionsForLabels(labels, index);
+    assertArrayEquals(new int[]{0, 0, 0, 2, 2, 5, 5}, positions);
+  }
+
+  @Test
+  public void fixedLabels_afterLastSection_jumpToLastItem() throws Exception {
+    SectionIndex index = new SectionIndex(new String[]{"B", "D", "F"}, new int[]{2, 3, 4});
+    String[] labels = {"E", "G", "Z"};
+    int[] positions = FastScrollIndexBar.getPositionsForLabels(labels, index);
+    assertArrayEquals(new int[]{5, 8, 8}, positions);
+  }
+
+  @Test
+  public void fixedLabels_emptySectionsShareThePositionOfTheNext() throws Exception {
+    SectionIndex index = new SectionIndex(new String[]{"A", "B", "C"}, new int[]{3, 0, 2});
+    String[] labels = {"A", "B", "C"};
+    int[] positions = FastScrollIndexBar.getPositionsForLabels(labels, index);
+    assertArrayEquals(new int[]{0, 3, 3}, positions);
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RowHeightEstimatorTest {
+
+  @Test
+  public void noSamples_returnsFallback() throws Exception {
+    RowHeightEstimator estimator = new RowHeightEstimator();
+    assertEquals(48, estimator.getRowHeight(48));
+    estimator.addSample(0);
+    assertFalse(estimator.hasSamples());
+  }
+
+  @Test
+  public void firstSample_isTheEstimate() throws Exception {
+    RowHeightEstimator estimator = new RowHeightEstimator();
+    estimator.addSample(120);
+    assertEquals(120, estimator.getRowHeight(48));
+    estimator.reset();
+    assertEquals(48, estimator.getRowHeight(48));
+  }
+
+  @Test
+  public void alternatingRows_settleWithoutJumping() throws Exception {
+    RowHeightEstimator estimator = new RowHeightEstimator();
+    for (int i = 0; i < 200; i++) {
+      estimator.addSample(i % 2 == 0 ? 100 : 300);
+    }
+    // Each tall or short row only nudges the estimate around the mean
+    int previous = estimator.getRowHeight(0);
+    for (int i = 0; i < 10; i++) {
+      estimator.addSample(i % 2 == 0 ? 100 : 300);
+      int height = estimator.getRowHeight(0);
+      assertTrue(Math.abs(height - 200) <= 12);
+      assertTrue(Math.abs(height - previous) <= 22);
+      previous = height;
+    }
+  }
+
+}
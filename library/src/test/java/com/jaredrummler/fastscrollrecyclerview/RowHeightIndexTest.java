@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RowHeightIndexTest {
+
+  @Test
+  public void unmeasuredRows_useEstimate() throws Exception {
+    RowHeightIndex index = new RowHeightIndex();
+    index.setRowCount(10);
+    index.setDefaultRowHeight(50);
+    assertEquals(500, index.getTotalHeight());
+    index.setRowHeight(0, 100);
+    assertEquals(100, index.getEstimatedRowHeight());
+    assertEquals(1000, index.getTotalHeight());
+    index.setRowHeight(1, 300);
+    assertEquals(200, index.getEstimatedRowHeight());
+    assertEquals(400 + 8 * 200, index.getTotalHeight());
+  }
+
+  @Test
+  public void offsets_matchLinearScan() throws Exception {
+    RowHeightIndex index = new RowHeightIndex();
+    int[] heights = new int[1000];
+    index.setRowCount(heights.length);
+    for (int i = 0; i < heights.length; i++) {
+      heights[i] = 48 + (i * 37) % 600;
+      index.setRowHeight(i, heights[i]);
+    }
+    long offset = 0;
+    for (int row = 0; row < heights.length; row++) {
+      assertEquals(offset, index.getRowOffset(row));
+      assertEquals(row, index.getRowAtOffset(offset));
+      assertEquals(row, index.getRowAtOffset(offset + heights[row] - 1));
+      offset += heights[row];
+    }
+    assertEquals(offset, index.getTotalHeight());
+    assertEquals(heights.length - 1, index.getRowAtOffset(Long.MAX_VALUE));
+    assertEquals(0, index.getRowAtOffset(-1));
+  }
+
+  @Test
+  public void insertAndRemove_shiftMeasuredHeights() throws Exception {
+    RowHeightIndex index = new RowHeightIndex();
+    index.setRowCount(4);
+    index.setRowHeight(0, 10);
+    index.setRowHeight(1, 20);
+    index.setRowHeight(2, 30);
+    index.setRowHeight(3, 40);
+    index.insertRows(1, 2);
+    assertEquals(6, index.getRowCount());
+    assertEquals(10, index.getRowOffset(1));
+    assertEquals(10 + 2 * 25, index.getRowOffset(3));
+    assertEquals(20, index.getRowHeight(3));
+    index.removeRows(0, 3);
+    assertEquals(3, index.getRowCount());
+    assertEquals(20 + 30 + 40, index.getTotalHeight());
+    index.moveRows(0, 2, 1);
+    assertEquals(30, index.getRowHeight(0));
+    assertEquals(40, index.getRowHeight(1));
+    assertEquals(20, index.getRowHeight(2));
+  }
+
+  @Test
+  public void seededHeights_answerOffsetsBeforeMeasuring() throws Exception {
+    // A header, two rows and a card, repeated: 32, 72, 72, 240
+    int[] heights = new int[4000];
+    for (int i = 0; i < heights.length; i++) {
+      heights[i] = i % 4 == 0 ? 32 : i % 4 == 3 ? 240 : 72;
+    }
+    RowHeightIndex index = new RowHeightIndex();
+    index.setRowHeights(heights);
+    assertEquals(4000, index.getRowCount());
+    assertEquals(1000L * (32 + 72 + 72 + 240), index.getTotalHeight());
+    assertEquals(32 + 72 + 72 + 240 + 32, index.getRowOffset(5));
+    assertEquals(5, index.getRowAtOffset(32 + 72 + 72 + 240 + 32));
+    index.setRowHeight(0, 40);
+    assertEquals(40 + 72, index.getRowOffset(2));
+  }
+
+  @Test
+  public void randomEdits_matchList() throws Exception {
+    Random random = new Random(42);
+    RowHeightIndex index = new RowHeightIndex();
+    List<Integer> rows = new ArrayList<Integer>();
+    index.setDefaultRowHeight(50);
+    for (int step = 0; step < 3000; step++) {
+      int size = rows.size();
+      int start = size == 0 ? 0 : random.nextInt(size + 1);
+      int count = 1 + random.nextInt(random.nextInt(4) == 0 ? 300 : 10);
+      switch (random.nextInt(4)) {
+        case 0:
+          index.insertRows(start, count);
+          for (int i = 0; i < count; i++) {
+            rows.add(start, RowHeightIndex.UNKNOWN);
+          }
+          break;
+        case 1:
+          if (start < size) {
+            count = Math.min(count, size - start);
+            index.removeRows(start, count);
+            rows.subList(start, start + count).clear();
+          }
+          break;
+        case 2:
+          if (size > 1) {
+            count = 1 + random.nextInt(Math.min(count, size - 1));
+            int from = random.nextInt(size - count + 1);
+            int to = random.nextInt(size - count + 1);
+            index.moveRows(from, to, count);
+            List<Integer> moved = new ArrayList<Integer>(rows.subList(from, from + count));
+            rows.subList(from, from + count).clear();
+            rows.addAll(to, moved);
+          }
+          break;
+        default:
+          for (int i = 0; i < count && size > 0; i++) {
+            int row = random.nextInt(size);
+            int height = 10 + random.nextInt(500);
+            index.setRowHeight(row, height);
+            rows.set(row, height);
+          }
+          break;
+      }
+      assertMatches(rows, index);
+    }
+  }
+
+  private static void assertMatches(List<Integer> rows, RowHeightIndex index) {
+    assertEquals(rows.size(), index.getRowCount());
+    int estimate = index.getEstimatedRowHeight();
+    long offset = 0;
+    for (int row = 0; row < rows.size(); row++) {
+      int height = rows.get(row) == RowHeightIndex.UNKNOWN ? estimate : rows.get(row);
+      assertEquals(height, index.getRowHeight(row));
+      assertEquals(offset, index.getRowOffset(row));
+      if (height > 0) {
+        assertEquals(row, index.getRowAtOffset(offset));
+        assertEquals(row, index.getRowAtOffset(offset + height - 1));
+      }
+      offset += height;
+    }
+    assertEquals(offset, index.getTotalHeight());
+  }
+
+}
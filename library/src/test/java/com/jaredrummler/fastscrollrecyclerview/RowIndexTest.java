@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RowIndexTest {
+
+  @Test
+  public void uniformSpans_useArithmetic() throws Exception {
+    RowIndex index = new RowIndex();
+    index.setUniform(10, 3);
+    assertEquals(4, index.getRowCount());
+    assertEquals(2, index.getRowForPosition(7));
+    assertEquals(9, index.getFirstPositionForRow(3));
+  }
+
+  @Test
+  public void fullWidthHeaders_startNewRows() throws Exception {
+    // A header every 5 items, followed by 4 items in a grid of 3 columns:
+    // H | 1 2 3 | 4 | H | 6 7 8 | 9 | ...
+    RowIndex index = new RowIndex();
+    index.build(20, 3, new RowIndex.SpanSizeProvider() {
+
+      @Override public int getSpanSize(int position) {
+        return position % 5 == 0 ? 3 : 1;
+      }
+    });
+    assertEquals(12, index.getRowCount());
+    assertEquals(0, index.getRowForPosition(0));
+    assertEquals(1, index.getRowForPosition(3));
+    assertEquals(2, index.getRowForPosition(4));
+    assertEquals(3, index.getRowForPosition(5));
+    assertEquals(11, index.getRowForPosition(19));
+    assertEquals(5, index.getFirstPositionForRow(3));
+    assertEquals(19, index.getFirstPositionForRow(11));
+  }
+
+  @Test
+  public void itemsThatDoNotFit_wrapToNextRow() throws Exception {
+    final int[] sizes = {1, 2, 2, 1, 1, 3};
+    RowIndex index = new RowIndex();
+    index.build(sizes.length, 3, new RowIndex.SpanSizeProvider() {
+
+      @Override public int getSpanSize(int position) {
+        return sizes[position];
+      }
+    });
+    // 1 2 | 2 1 | 1 | 3
+    assertEquals(4, index.getRowCount());
+    assertEquals(1, index.getRowForPosition(3));
+    assertEquals(2, index.getRowForPosition(4));
+    assertEquals(5, index.getFirstPositionForRow(3));
+  }
+
+  @Test
+  public void update_matchesFullBuild() throws Exception {
+    Random random = new Random(42);
+    final List<Integer> sizes = new ArrayList<Integer>();
+    for (int i = 0; i < 200; i++) {
+      sizes.add(randomSpanSize(random));
+    }
+    RowIndex.SpanSizeProvider spanSizes = new RowIndex.SpanSizeProvider() {
+
+      @Override public int getSpanSize(int position) {
+        return sizes.get(position);
+      }
+    };
+    RowIndex index = new RowIndex();
+    index.build(sizes.size(), 4, spanSizes);
+    for (int edit = 0; edit < 2000; edit++) {
+      int start = random.nextInt(sizes.size() + 1);
+      int removed = Math.min(sizes.size() - start, random.nextInt(4));
+      int inserted = random.nextInt(4);
+      for (int i = 0; i < removed; i++) {
+        sizes.remove(start);
+      }
+      for (int i = 0; i < inserted; i++) {
+        sizes.add(start, randomSpanSize(random));
+      }
+      assertTrue(index.update(start, removed, inserted, spanSizes));
+      RowIndex expected = new RowIndex();
+      expected.build(sizes.size(), 4, spanSizes);
+      assertEquals(expected.getItemCount(), index.getItemCount());
+      assertEquals(expected.getRowCount(), index.getRowCount());
+      for (int row = 0; row < expected.getRowCount(); row++) {
+        assertEquals(expected.getFirstPositionForRow(row), index.getFirstPositionForRow(row));
+      }
+    }
+  }
+
+  @Test
+  public void update_uniformSpans_needsRebuild() throws Exception {
+    RowIndex index = new RowIndex();
+    index.setUniform(10, 3);
+    assertFalse(index.update(0, 0, 1, null));
+  }
+
+  private static int randomSpanSize(Random random) {
+    return random.nextInt(5) == 0 ? 4 : 1 + random.nextInt(3); // Mostly small items, with a few full width headers
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScrollMathTest {
+
+  private static final int ROW_HEIGHT = 120;
+  private static final int SCROLL_BAR_HEIGHT = 1800;
+
+  @Test
+  public void scrollHeightBeyondInt_doesNotOverflow() throws Exception {
+    int rowCount = 20000000; // 2.4 billion pixels of content
+    long availableScrollHeight = (long) rowCount * ROW_HEIGHT - SCROLL_BAR_HEIGHT;
+    assertTrue(availableScrollHeight > Integer.MAX_VALUE);
+
+    long scrollY = ScrollMath.getScrollY(rowCount - 1, 0f, ROW_HEIGHT);
+    assertEquals((long) (rowCount - 1) * ROW_HEIGHT, scrollY);
+    int thumbOffset = ScrollMath.getThumbOffset(scrollY, availableScrollHeight, SCROLL_BAR_HEIGHT);
+    assertTrue(thumbOffset >= 0 && thumbOffset <= SCROLL_BAR_HEIGHT);
+  }
+
+  @Test
+  public void thumbOffset_isMonotonic() throws Exception {
+    int rowCount = 20000000;
+    long availableScrollHeight = (long) rowCount * ROW_HEIGHT - SCROLL_BAR_HEIGHT;
+    int previous = 0;
+    for (int row = 0; row < rowCount; row += 99991) {
+      long scrollY = ScrollMath.getScrollY(row, 0.5f, ROW_HEIGHT);
+      int thumbOffset = ScrollMath.getThumbOffset(scrollY, availableScrollHeight, SCROLL_BAR_HEIGHT);
+      assertTrue(thumbOffset >= previous);
+      previous = thumbOffset;
+    }
+  }
+
+  @Test
+  public void progress_mapsToRowAndOffset() throws Exception {
+    int rowCount = 20000000;
+    long availableScrollHeight = (long) rowCount * ROW_HEIGHT;
+    long scrollOffset = ScrollMath.getScrollOffsetAtProgress(availableScrollHeight, 0.75f);
+    assertEquals(availableScrollHeight * 3 / 4, scrollOffset);
+    assertEquals(15000000, ScrollMath.getRowAtScrollOffset(scrollOffset, ROW_HEIGHT));
+    assertEquals(0, ScrollMath.getOffsetInRow(scrollOffset, ROW_HEIGHT));
+    assertEquals(rowCount, ScrollMath.getRowAtScrollOffset(availableScrollHeight, ROW_HEIGHT));
+  }
+
+  @Test
+  public void progress_mapsToPositionWithinItemCount() throws Exception {
+    int itemCount = Integer.MAX_VALUE;
+    assertEquals(0, ScrollMath.getPositionAtProgress(itemCount, 0f));
+    assertEquals(itemCount - 1, ScrollMath.getPositionAtProgress(itemCount, 1f));
+    assertEquals(itemCount / 2, ScrollMath.getPositionAtProgress(itemCount, 0.5f));
+    assertEquals(0, ScrollMath.getPositionAtProgress(1, 1f));
+    assertEquals(2, ScrollMath.getPositionAtProgress(3, 0.99999994f));
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SectionIndexTest {
+
+  @Test
+  public void positions_resolveToSections() throws Exception {
+    SectionIndex index = new SectionIndex(new String[]{"A", "B", "C", "D"}, new int[]{3, 0, 2, 5});
+    assertEquals(10, index.getItemCount());
+    assertEquals("A", index.getSectionName(0));
+    assertEquals("A", index.getSectionName(2));
+    assertEquals("C", index.getSectionName(3)); // B is empty
+    assertEquals("C", index.getSectionName(4));
+    assertEquals("D", index.getSectionName(5));
+    assertEquals("D", index.getSectionName(9));
+    assertEquals("D", index.getSectionName(42));
+    assertEquals(0, index.getPositionForSection(0));
+    assertEquals(3, index.getPositionForSection(2));
+    assertEquals(5, index.getPositionForSection(3));
+  }
+
+  @Test
+  public void largeCatalog_needsNoPerItemStorage() throws Exception {
+    String[] labels = new String[40];
+    int[] counts = new int[40];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = "S" + i;
+      counts[i] = 125000;
+    }
+    SectionIndex index = new SectionIndex(labels, counts);
+    assertEquals(5000000, index.getItemCount());
+    assertEquals(39, index.getSectionForPosition(4999999));
+    assertEquals(20, index.getSectionForPosition(2500000));
+    assertEquals(19, index.getSectionForPosition(2499999));
+  }
+
+  @Test
+  public void empty_hasNoSections() throws Exception {
+    SectionIndex index = new SectionIndex(new String[0], new int[0]);
+    assertEquals(-1, index.getSectionForPosition(0));
+    assertEquals("", index.getSectionName(0));
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SectionRunsTest {
+
+  @Test
+  public void build_mergesConsecutiveNames() throws Exception {
+    SectionRuns runs = new SectionRuns();
+    runs.build(6, names(list("A", "A", "B", "C", "C", "C")));
+    assertEquals(3, runs.getRunCount());
+    assertEquals(6, runs.getItemCount());
+    assertEquals(1, runs.getRunForPosition(2));
+    assertEquals(3, runs.getRunStart(2));
+    assertEquals("C", runs.getSectionName(5));
+    assertEquals("C", runs.getSectionName(42));
+  }
+
+  @Test
+  public void equalLabels_areInterned() throws Exception {
+    final String[] items = {"A", "A", "B", "A", "A", "C"};
+    SectionRuns runs = new SectionRuns();
+    runs.build(items.length, new SectionRuns.NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return new String(items[position]); // A new instance each time, like most adapters
+      }
+    });
+    assertEquals(4, runs.getRunCount());
+    assertEquals(3, runs.getLabelCount());
+    assertSame(runs.getSectionName(0), runs.getSectionName(4));
+    runs.insert(6, 1, names(list("A", "A", "B", "A", "A", "C", "B")));
+    assertEquals(3, runs.getLabelCount());
+  }
+
+  @Test
+  public void largeList_takesKilobytes() throws Exception {
+    final int itemCount = 5000000;
+    final int sectionCount = 30;
+    SectionRuns runs = new SectionRuns();
+    runs.build(itemCount, new SectionRuns.NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return "S" + (int) ((long) position * sectionCount / itemCount);
+      }
+    });
+    assertEquals(sectionCount, runs.getRunCount());
+    assertEquals("S29", runs.getSectionName(itemCount - 1));
+    assertTrue(runs.getMemoryFootprint() < 8192);
+  }
+
+  @Test
+  public void rangeEvents_matchRebuild() throws Exception {
+    Random random = new Random(7);
+    List<String> items = new ArrayList<String>();
+    for (int i = 0; i < 200; i++) {
+      items.add(String.valueOf((char) ('A' + i / 20)));
+    }
+    SectionRuns runs = new SectionRuns();
+    runs.build(items.size(), names(items));
+    for (int step = 0; step < 2000; step++) {
+      int op = random.nextInt(4);
+      if (op == 0 || items.isEmpty()) {
+        int start = random.nextInt(items.size() + 1);
+        int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+          items.add(start + i, String.valueOf((char) ('A' + random.nextInt(10))));
+        }
+        runs.insert(start, count, names(items));
+      } else if (op == 1) {
+        int start = random.nextInt(items.size());
+        int count = Math.min(items.size() - start, 1 + random.nextInt(4));
+        items.subList(start, start + count).clear();
+        runs.remove(start, count);
+      } else if (op == 2) {
+        int from = random.nextInt(items.size());
+        int to = random.nextInt(items.size());
+        items.add(to, items.remove(from));
+        runs.move(from, to, 1);
+      } else {
+        int position = random.nextInt(items.size());
+        items.set(position, String.valueOf((char) ('A' + random.nextInt(10))));
+        runs.change(position, 1, names(items));
+      }
+      SectionRuns expected = new SectionRuns();
+      expected.build(items.size(), names(items));
+      assertEquals(expected.getItemCount(), runs.getItemCount());
+      assertEquals(expected.getRunCount(), runs.getRunCount());
+      for (int run = 0; run < expected.getRunCount(); run++) {
+        assertEquals(expected.getLabel(run), runs.getLabel(run));
+        assertEquals(expected.getRunStart(run), runs.getRunStart(run));
+      }
+    }
+  }
+
+  private static List<String> list(String... names) {
+    List<String> list = new ArrayList<String>();
+    for (String name : names) {
+      list.add(name);
+    }
+    return list;
+  }
+
+  private static SectionRuns.NameSource names(final List<String> items) {
+    return new SectionRuns.NameSource() {
+
+      @Override public String getSectionName(int position) {
+        return items.get(position);
+      }
+    };
+  }
+
+}